@@ -1,14 +1,14 @@
 package io.eventdriven.ecommerce.core.events;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class EventTypeMapper {
   private static final EventTypeMapper Instance = new EventTypeMapper();
 
-  private final Map<String, Optional<Class>> typeMap = new HashMap<>();
-  private final Map<Class, String> typeNameMap = new HashMap<>();
+  private final Map<String, Optional<Class>> typeMap = new ConcurrentHashMap<>();
+  private final Map<Class, String> typeNameMap = new ConcurrentHashMap<>();
 
   public static String toName(Class eventType) {
     return Instance.typeNameMap.computeIfAbsent(
@@ -0,0 +1,89 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.EventTypeMapper;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.tools.PostgresDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+import static io.eventdriven.buildyourowneventstore.JsonEventSerializer.serialize;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
+
+/**
+ * Compares the batched `append_events` path with appending events one by one
+ * through `append_event`, against PostgreSQL started with docker-compose.
+ * Run with `./gradlew jmh -PjmhIncludes=AppendEventsBenchmark`.
+ * <p>
+ * Each invocation appends `batchSize` events to a new stream in a single transaction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class AppendEventsBenchmark {
+  @Param({"1", "10", "100", "1000"})
+  public int batchSize;
+
+  private Connection dbConnection;
+  private PgEventStore eventStore;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    dbConnection = PostgresDbConnectionProvider.getFreshDbConnection();
+    eventStore = new PgEventStore(dbConnection);
+    eventStore.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    dbConnection.close();
+  }
+
+  @Benchmark
+  public void appendEvents() {
+    var bankAccountId = UUID.randomUUID().toString();
+
+    eventStore.appendEvents(BankAccount.class, bankAccountId, batch(bankAccountId));
+  }
+
+  @Benchmark
+  public void appendEventByEvent() {
+    var bankAccountId = UUID.randomUUID().toString();
+    var events = batch(bankAccountId);
+
+    runInTransaction(dbConnection, connection -> {
+      for (var event : events) {
+        querySingleSql(
+          connection,
+          "SELECT append_event(?::text, ?::jsonb, ?, ?::text, ?, ?) AS succeeded",
+          ps -> {
+            setStringParam(ps, 1, UUID.randomUUID().toString());
+            setStringParam(ps, 2, serialize(event));
+            setStringParam(ps, 3, EventTypeMapper.toName(event.getClass()));
+            setStringParam(ps, 4, bankAccountId);
+            setStringParam(ps, 5, BankAccount.class.getTypeName());
+            setLong(ps, 6, null);
+          },
+          rs -> getBoolean(rs, "succeeded")
+        );
+      }
+    });
+  }
+
+  private Object[] batch(String bankAccountId) {
+    var now = LocalDateTime.now();
+
+    return IntStream.range(0, batchSize)
+      .mapToObj(version ->
+        new DepositRecorded(bankAccountId, 100, "cashier", now, version)
+      )
+      .toArray();
+  }
+}
@@ -0,0 +1,56 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.tools.ConnectionPool;
+import io.eventdriven.buildyourowneventstore.tools.PostgresDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+
+/**
+ * Appends to new streams from many threads through an event store sharing a connection pool,
+ * against PostgreSQL started with docker-compose. Number of threads is set with `-PjmhThreads`, e.g.
+ * `./gradlew jmh -PjmhIncludes=ConcurrentAppendsBenchmark -PjmhThreads=8`.
+ * <p>
+ * Each invocation appends `eventsPerAppend` events to a new stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ConcurrentAppendsBenchmark {
+  private static final int maxPoolSize = 32;
+  private static final int eventsPerAppend = 5;
+
+  private ConnectionPool connectionPool;
+  private PgEventStore eventStore;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    connectionPool = PostgresDbConnectionProvider.getFreshConnectionPool(maxPoolSize);
+    eventStore = new PgEventStore(connectionPool);
+    eventStore.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    connectionPool.close();
+  }
+
+  @Benchmark
+  public void append() {
+    var bankAccountId = UUID.randomUUID().toString();
+    var now = LocalDateTime.now();
+
+    var events = IntStream.range(0, eventsPerAppend)
+      .mapToObj(version -> new DepositRecorded(bankAccountId, 100, "cashier", now, version))
+      .toArray();
+
+    eventStore.appendEvents(BankAccount.class, bankAccountId, events);
+  }
+}
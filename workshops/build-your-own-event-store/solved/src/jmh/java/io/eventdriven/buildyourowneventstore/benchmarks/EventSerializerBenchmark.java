@@ -0,0 +1,64 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.EventSerializer;
+import io.eventdriven.buildyourowneventstore.EventTypeMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static bankaccounts.BankAccount.Event.*;
+
+/**
+ * Compares serialisation cost of JSON (jsonb column) and Smile (bytea column) codecs
+ * for bank account events. Run with `./gradlew jmh -PjmhIncludes=EventSerializerBenchmark`.
+ * <p>
+ * Each invocation handles one event of every bank account event type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EventSerializerBenchmark {
+  @Param({"json", "smile"})
+  public String codec;
+
+  private EventSerializer serializer;
+  private List<BankAccount.Event> events;
+  private byte[][] payloads;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    serializer = EventSerializer.forCodec(codec);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var now = LocalDateTime.now();
+
+    events = List.of(
+      new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0),
+      new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1),
+      new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2),
+      new BankAccountClosed(bankAccountId, "Client request", now, 3)
+    );
+
+    payloads = events.stream().map(serializer::serialize).toArray(byte[][]::new);
+  }
+
+  @Benchmark
+  public void serialize(Blackhole blackhole) {
+    for (var event : events) {
+      blackhole.consume(serializer.serialize(event));
+    }
+  }
+
+  @Benchmark
+  public void deserialize(Blackhole blackhole) {
+    for (var i = 0; i < payloads.length; i++) {
+      var eventClass = events.get(i).getClass();
+      blackhole.consume(serializer.deserialize(eventClass, EventTypeMapper.toName(eventClass), payloads[i]));
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import com.mongodb.client.MongoClient;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.StreamName;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.event_as_document.MongoDBEventStoreWithEventAsDocument;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.event_as_document.MongoDBEventStoreWithEventAsDocument.AppendToStream;
+import io.eventdriven.buildyourowneventstore.tools.mongodb.NativeMongoConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+
+/**
+ * Compares appending to many streams in one bulk write transaction with a transaction per stream
+ * in the MongoDB event-as-document store, against MongoDB started with docker-compose.
+ * Run with `./gradlew jmh -PjmhIncludes=MongoDBBatchedAppendsBenchmark`.
+ * <p>
+ * Each invocation appends `eventsPerStream` events to `streamsPerBatch` new streams.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class MongoDBBatchedAppendsBenchmark {
+  private static final String databaseName = "jmh-mongodb-batched-appends";
+  private static final int eventsPerStream = 3;
+
+  @Param({"1", "10", "100", "500"})
+  public int streamsPerBatch;
+
+  private MongoClient mongoClient;
+  private MongoDBEventStoreWithEventAsDocument eventStore;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    mongoClient = NativeMongoConfig.createClient();
+    mongoClient.getDatabase(databaseName).drop();
+
+    eventStore = new MongoDBEventStoreWithEventAsDocument(mongoClient, databaseName);
+    eventStore.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    mongoClient.close();
+  }
+
+  @Benchmark
+  public void bulkWrite() {
+    var appends = new ArrayList<AppendToStream>(streamsPerBatch);
+
+    for (var i = 0; i < streamsPerBatch; i++) {
+      var bankAccountId = UUID.randomUUID().toString();
+
+      appends.add(new AppendToStream(StreamName.of(BankAccount.class, bankAccountId), 0L, events(bankAccountId)));
+    }
+
+    eventStore.appendEvents(appends);
+  }
+
+  @Benchmark
+  public void transactionPerStream() {
+    for (var i = 0; i < streamsPerBatch; i++) {
+      var bankAccountId = UUID.randomUUID().toString();
+
+      eventStore.appendEvents(StreamName.of(BankAccount.class, bankAccountId), 0L, events(bankAccountId).toArray());
+    }
+  }
+
+  private static List<Object> events(String bankAccountId) {
+    var now = LocalDateTime.now();
+
+    return IntStream.range(0, eventsPerStream)
+      .<Object>mapToObj(version ->
+        new DepositRecorded(bankAccountId, 100, "cashier", now, version)
+      )
+      .toList();
+  }
+}
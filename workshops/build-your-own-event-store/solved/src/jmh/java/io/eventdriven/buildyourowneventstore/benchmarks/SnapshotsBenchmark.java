@@ -0,0 +1,97 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.PgSnapshotStore;
+import io.eventdriven.buildyourowneventstore.SnapshotPolicy;
+import io.eventdriven.buildyourowneventstore.tools.PostgresDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static bankaccounts.BankAccount.Event.BankAccountOpened;
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+import static bankaccounts.BankAccountService.getBankAccount;
+
+/**
+ * Compares loading an aggregate by replaying the whole stream with loading it from
+ * the latest snapshot, against PostgreSQL started with docker-compose.
+ * Run with `./gradlew jmh -PjmhIncludes=SnapshotsBenchmark`.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SnapshotsBenchmark {
+  private static final int appendBatchSize = 1000;
+
+  @Param({"100", "1000", "10000", "100000"})
+  public int streamLength;
+
+  private Connection dbConnection;
+  private PgEventStore eventStore;
+  private PgEventStore snapshottingEventStore;
+  private String bankAccountId;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    dbConnection = PostgresDbConnectionProvider.getFreshDbConnection();
+
+    eventStore = new PgEventStore(dbConnection);
+    eventStore.init();
+
+    snapshottingEventStore = new PgEventStore(
+      dbConnection,
+      new PgSnapshotStore(dbConnection),
+      SnapshotPolicy.everyNEvents(100)
+    );
+    snapshottingEventStore.init();
+
+    bankAccountId = appendStream();
+
+    // take the snapshot before measuring
+    getBankAccount(snapshottingEventStore, bankAccountId);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    dbConnection.close();
+  }
+
+  @Benchmark
+  public Optional<BankAccount> withoutSnapshots() {
+    return getBankAccount(eventStore, bankAccountId);
+  }
+
+  @Benchmark
+  public Optional<BankAccount> withSnapshots() {
+    return getBankAccount(snapshottingEventStore, bankAccountId);
+  }
+
+  private String appendStream() {
+    var bankAccountId = UUID.randomUUID().toString();
+    var now = LocalDateTime.now();
+
+    eventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", "client", "PLN", now, 0)
+    );
+
+    for (var version = 1; version < streamLength; version += appendBatchSize) {
+      var from = version;
+      var batch = IntStream.range(from, Math.min(from + appendBatchSize, streamLength))
+        .mapToObj(v -> new DepositRecorded(bankAccountId, 1, "cashier", now, v))
+        .toArray();
+
+      eventStore.appendEvents(BankAccount.class, bankAccountId, batch);
+    }
+
+    return bankAccountId;
+  }
+}
@@ -0,0 +1,57 @@
+package io.eventdriven.buildyourowneventstore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link EventStore}. Futures complete with the same results
+ * and fail with the same exceptions as the blocking methods.
+ */
+public interface AsyncEventStore {
+  default <Stream> CompletableFuture<Void> appendEvents(
+    Class<Stream> streamClass,
+    String streamId,
+    Object... events
+  ) {
+    return appendEvents(streamClass, streamId, null, events);
+  }
+
+  <Stream> CompletableFuture<Void> appendEvents(
+    Class<Stream> streamClass,
+    String streamId,
+    Long expectedVersion,
+    Object... events
+  );
+
+  default CompletableFuture<List<Object>> getEvents(
+    String streamId
+  ) {
+    return getEvents(streamId, null, null);
+  }
+
+  CompletableFuture<List<Object>> getEvents(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  );
+
+  default <Stream, Event> CompletableFuture<Optional<Stream>> aggregateStream(
+    Supplier<Stream> getDefault,
+    BiFunction<Stream, Event, Stream> evolve,
+    String streamId
+  ) {
+    return aggregateStream(getDefault, evolve, streamId, null, null);
+  }
+
+  <Stream, Event> CompletableFuture<Optional<Stream>> aggregateStream(
+    Supplier<Stream> getDefault,
+    BiFunction<Stream, Event, Stream> evolve,
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  );
+}
@@ -0,0 +1,50 @@
+package io.eventdriven.buildyourowneventstore;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.util.Optional;
+
+/**
+ * Encodes event payloads stored in the events table.
+ * Each row records the codec it was written with, so events written with
+ * different serializers can be read from the same stream.
+ */
+public interface EventSerializer {
+  /**
+   * Name stored in the `codec` column.
+   */
+  String codec();
+
+  /**
+   * Binary payloads are stored in `binary_data` (bytea) column,
+   * textual ones in `data` (jsonb) column.
+   */
+  boolean isBinary();
+
+  byte[] serialize(Object event);
+
+  <Event> Optional<Event> deserialize(Class<Event> eventClass, String eventType, byte[] payload);
+
+  EventSerializer JSON = new JacksonEventSerializer("json", false, JsonEventSerializer.mapper);
+
+  EventSerializer SMILE = new JacksonEventSerializer(
+    "smile",
+    true,
+    SmileMapper.builder()
+      .addModule(new JavaTimeModule())
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+      .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+      .build()
+  );
+
+  static EventSerializer forCodec(String codec) {
+    return switch (codec) {
+      case "json" -> JSON;
+      case "smile" -> SMILE;
+      default -> throw new IllegalArgumentException("Unknown event codec: " + codec);
+    };
+  }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public interface EventStore {
   void init();
@@ -36,6 +37,18 @@ public interface EventStore {
     LocalDateTime atTimestamp
   );
 
+  /**
+   * Reads events lazily, one by one, instead of materialising the whole stream.
+   * Returned stream MUST be closed after usage (e.g. with try-with-resources).
+   */
+  default Stream<Object> readEvents(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    return getEvents(streamId, atStreamVersion, atTimestamp).stream();
+  }
+
   default <Stream, Event> Optional<Stream> aggregateStream(
     Supplier<Stream> getDefault,
     BiFunction<Stream, Event, Stream> evolve,
@@ -51,18 +64,20 @@ public interface EventStore {
     Long atStreamVersion,
     LocalDateTime atTimestamp
   ) {
-    var events = getEvents(streamId, atStreamVersion, atTimestamp);
+    try (var events = readEvents(streamId, atStreamVersion, atTimestamp)) {
+      var iterator = events.iterator();
 
-    if (events.isEmpty()) {
-      return Optional.empty();
-    }
+      if (!iterator.hasNext()) {
+        return Optional.empty();
+      }
 
-    var aggregate = getDefault.get();
+      var aggregate = getDefault.get();
 
-    for (var event : events) {
-      aggregate = evolve.apply(aggregate, (Event) event);
-    }
+      while (iterator.hasNext()) {
+        aggregate = evolve.apply(aggregate, (Event) iterator.next());
+      }
 
-    return Optional.of(aggregate);
+      return Optional.of(aggregate);
+    }
   }
 }
@@ -1,23 +1,72 @@
 package io.eventdriven.buildyourowneventstore;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Maps event classes to type names (and optionally compact type ids) stored with events.
+ * Types can be registered explicitly, e.g. at startup; not registered ones fall back
+ * to the name derived from the class name, resolved once and cached.
+ * Unknown type names are cached as well, so lookups never reflect on the hot path.
+ */
 public final class EventTypeMapper {
     private static final EventTypeMapper instance = new EventTypeMapper();
 
-    private final Map<String, Optional<Class>> typeMap = new HashMap<>();
-    private final Map<Class, String> typeNameMap = new HashMap<>();
+    private final Map<String, Optional<Class>> typeMap = new ConcurrentHashMap<>();
+    private final Map<Class, Registration> registrations = new ConcurrentHashMap<>();
+    private volatile Class[] typesById = new Class[0];
+
+    private final ClassValue<Registration> typeRegistrations = new ClassValue<>() {
+        @Override
+        protected Registration computeValue(Class<?> eventType) {
+            var registration = registrations.get(eventType);
+
+            return registration != null ?
+                registration
+                : new Registration(eventType.getTypeName().replace(".", "_"), null);
+        }
+    };
+
+    public static void register(Class eventType, String eventTypeName) {
+        instance.add(eventType, new Registration(eventTypeName, null));
+    }
+
+    /**
+     * Registers type with compact id stored next to the type name,
+     * so the reader can resolve the class by an array lookup.
+     * Ids should be small, non-negative and never reused for a different type.
+     */
+    public static void register(Class eventType, String eventTypeName, int typeId) {
+        if (typeId < 0)
+            throw new IllegalArgumentException("Type id cannot be negative");
+
+        instance.add(eventType, new Registration(eventTypeName, typeId));
+    }
 
     public static String toName(Class eventType) {
-        return instance.typeNameMap.computeIfAbsent(
-            eventType,
-            c -> c.getTypeName().replace(".", "_")
-        );
+        return instance.typeRegistrations.get(eventType).name();
+    }
+
+    public static Optional<Integer> toTypeId(Class eventType) {
+        return Optional.ofNullable(instance.typeRegistrations.get(eventType).typeId());
+    }
+
+    public static Optional<Class> toClass(int typeId) {
+        var typesById = instance.typesById;
+
+        return typeId >= 0 && typeId < typesById.length ?
+            Optional.ofNullable(typesById[typeId])
+            : Optional.empty();
     }
 
     public static Optional<Class> toClass(String eventTypeName) {
+        var cached = instance.typeMap.get(eventTypeName);
+
+        if (cached != null)
+            return cached;
+
         return instance.typeMap.computeIfAbsent(
             eventTypeName,
             c -> {
@@ -29,5 +78,36 @@ public final class EventTypeMapper {
             }
         );
     }
-}
 
+    private synchronized void add(Class eventType, Registration registration) {
+        registrations.forEach((registeredClass, existing) -> {
+            if (existing.name().equals(registration.name()) && registeredClass != eventType)
+                throw new IllegalArgumentException(
+                    "Event type name '%s' is already registered for %s".formatted(registration.name(), registeredClass)
+                );
+        });
+
+        if (registration.typeId() != null) {
+            var typeId = registration.typeId();
+            var registeredById = toClass(typeId);
+
+            if (registeredById.isPresent() && registeredById.get() != eventType)
+                throw new IllegalArgumentException(
+                    "Event type id %d is already registered for %s".formatted(typeId, registeredById.get())
+                );
+
+            var updatedTypesById = Arrays.copyOf(typesById, Math.max(typesById.length, typeId + 1));
+            updatedTypesById[typeId] = eventType;
+            typesById = updatedTypesById;
+        }
+
+        registrations.put(eventType, registration);
+        // overrides also cached misses
+        typeMap.put(registration.name(), Optional.of(eventType));
+        // recomputed on the next lookup
+        typeRegistrations.remove(eventType);
+    }
+
+    private record Registration(String name, Integer typeId) {
+    }
+}
@@ -0,0 +1,51 @@
+package io.eventdriven.buildyourowneventstore;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public final class JacksonEventSerializer implements EventSerializer {
+  private static final Logger logger = LoggerFactory.getLogger(JacksonEventSerializer.class);
+  private final String codec;
+  private final boolean isBinary;
+  private final ObjectMapper mapper;
+
+  public JacksonEventSerializer(String codec, boolean isBinary, ObjectMapper mapper) {
+    this.codec = codec;
+    this.isBinary = isBinary;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public String codec() {
+    return codec;
+  }
+
+  @Override
+  public boolean isBinary() {
+    return isBinary;
+  }
+
+  @Override
+  public byte[] serialize(Object event) {
+    try {
+      return mapper.writeValueAsBytes(event);
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public <Event> Optional<Event> deserialize(Class<Event> eventClass, String eventType, byte[] payload) {
+    try {
+      return Optional.ofNullable(mapper.readValue(payload, eventClass));
+    } catch (IOException e) {
+      logger.warn("Error deserializing event %s with %s codec".formatted(eventType, codec), e);
+      return Optional.empty();
+    }
+  }
+}
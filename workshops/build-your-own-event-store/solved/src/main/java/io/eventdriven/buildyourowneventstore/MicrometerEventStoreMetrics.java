@@ -0,0 +1,139 @@
+package io.eventdriven.buildyourowneventstore;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records event store metrics in Micrometer registry, tagged with stream type.
+ * Meters are registered on the first use of the stream type and reused afterwards.
+ * Operations without stream type are tagged as `unknown`.
+ */
+public class MicrometerEventStoreMetrics implements EventStoreMetrics {
+  private final MeterRegistry registry;
+  private final String prefix;
+  private final ConcurrentHashMap<String, StreamTypeMeters> meters = new ConcurrentHashMap<>();
+
+  public MicrometerEventStoreMetrics(MeterRegistry registry) {
+    this(registry, "eventstore");
+  }
+
+  public MicrometerEventStoreMetrics(MeterRegistry registry, String prefix) {
+    this.registry = registry;
+    this.prefix = prefix;
+  }
+
+  @Override
+  public void recordAppend(String streamType, int events, long bytes, long durationNanos) {
+    var meters = metersFor(streamType);
+
+    meters.appendDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    meters.appendEvents.record(events);
+    if (bytes >= 0)
+      meters.appendBytes.record(bytes);
+  }
+
+  @Override
+  public void recordAppendConflict(String streamType) {
+    metersFor(streamType).appendConflicts.increment();
+  }
+
+  @Override
+  public void recordRead(String streamType, int streamLength, long durationNanos) {
+    var meters = metersFor(streamType);
+
+    meters.readDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    meters.readStreamLength.record(streamLength);
+  }
+
+  @Override
+  public void recordSerialization(String streamType, long bytes, long durationNanos) {
+    var meters = metersFor(streamType);
+
+    meters.serializationDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    if (bytes >= 0)
+      meters.serializedBytes.record(bytes);
+  }
+
+  @Override
+  public void recordDeserialization(String streamType, long bytes, long durationNanos) {
+    var meters = metersFor(streamType);
+
+    meters.deserializationDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    if (bytes >= 0)
+      meters.deserializedBytes.record(bytes);
+  }
+
+  private StreamTypeMeters metersFor(String streamType) {
+    if (streamType == null)
+      streamType = UNKNOWN_STREAM_TYPE;
+
+    var streamTypeMeters = meters.get(streamType);
+
+    // lookup of already registered meters doesn't allocate
+    return streamTypeMeters != null ?
+      streamTypeMeters
+      : meters.computeIfAbsent(streamType, this::register);
+  }
+
+  private StreamTypeMeters register(String streamType) {
+    return new StreamTypeMeters(
+      Timer.builder(prefix + ".append.duration")
+        .tag("stream.type", streamType)
+        .publishPercentileHistogram()
+        .register(registry),
+      DistributionSummary.builder(prefix + ".append.events")
+        .tag("stream.type", streamType)
+        .register(registry),
+      DistributionSummary.builder(prefix + ".append.bytes")
+        .tag("stream.type", streamType)
+        .baseUnit("bytes")
+        .register(registry),
+      Counter.builder(prefix + ".append.conflicts")
+        .tag("stream.type", streamType)
+        .register(registry),
+      Timer.builder(prefix + ".read.duration")
+        .tag("stream.type", streamType)
+        .publishPercentileHistogram()
+        .register(registry),
+      DistributionSummary.builder(prefix + ".read.stream.length")
+        .tag("stream.type", streamType)
+        .publishPercentileHistogram()
+        .register(registry),
+      Timer.builder(prefix + ".serialization.duration")
+        .tag("stream.type", streamType)
+        .register(registry),
+      DistributionSummary.builder(prefix + ".serialization.bytes")
+        .tag("stream.type", streamType)
+        .baseUnit("bytes")
+        .register(registry),
+      Timer.builder(prefix + ".deserialization.duration")
+        .tag("stream.type", streamType)
+        .register(registry),
+      DistributionSummary.builder(prefix + ".deserialization.bytes")
+        .tag("stream.type", streamType)
+        .baseUnit("bytes")
+        .register(registry)
+    );
+  }
+
+  private static final String UNKNOWN_STREAM_TYPE = "unknown";
+
+  private record StreamTypeMeters(
+    Timer appendDuration,
+    DistributionSummary appendEvents,
+    DistributionSummary appendBytes,
+    Counter appendConflicts,
+    Timer readDuration,
+    DistributionSummary readStreamLength,
+    Timer serializationDuration,
+    DistributionSummary serializedBytes,
+    Timer deserializationDuration,
+    DistributionSummary deserializedBytes
+  ) {
+  }
+}
@@ -1,25 +1,189 @@
 package io.eventdriven.buildyourowneventstore;
 
+import io.eventdriven.buildyourowneventstore.tools.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
-import static io.eventdriven.buildyourowneventstore.JsonEventSerializer.deserialize;
-import static io.eventdriven.buildyourowneventstore.JsonEventSerializer.serialize;
 import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
 
 public class PgEventStore implements EventStore {
 
   public PgEventStore(Connection dbConnection) {
-    this.dbConnection = dbConnection;
+    this(dbConnection, DEFAULT_FETCH_SIZE);
+  }
+
+  public PgEventStore(Connection dbConnection, int fetchSize) {
+    this(dbConnection, fetchSize, null, SnapshotPolicy.NEVER);
+  }
+
+  public PgEventStore(
+    Connection dbConnection,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy
+  ) {
+    this(dbConnection, DEFAULT_FETCH_SIZE, snapshotStore, snapshotPolicy);
+  }
+
+  public PgEventStore(
+    Connection dbConnection,
+    int fetchSize,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy
+  ) {
+    this(new SingleConnectionDataSource(dbConnection), fetchSize, snapshotStore, snapshotPolicy);
+  }
+
+  /**
+   * Creates event store writing event payloads with the given serializer,
+   * e.g. {@link EventSerializer#SMILE} to store them as binary.
+   * Events are always read with the codec recorded for each row.
+   */
+  public PgEventStore(Connection dbConnection, EventSerializer serializer) {
+    this(new SingleConnectionDataSource(dbConnection), DEFAULT_FETCH_SIZE, null, SnapshotPolicy.NEVER, serializer);
+  }
+
+  /**
+   * Creates event store borrowing a connection from the data source for each
+   * operation. It's thread-safe as long as the data source is
+   * (e.g. {@link io.eventdriven.buildyourowneventstore.tools.ConnectionPool}).
+   */
+  public PgEventStore(DataSource dataSource) {
+    this(dataSource, DEFAULT_FETCH_SIZE, null, SnapshotPolicy.NEVER);
+  }
+
+  public PgEventStore(
+    DataSource dataSource,
+    int fetchSize,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy
+  ) {
+    this(dataSource, fetchSize, snapshotStore, snapshotPolicy, EventSerializer.JSON);
+  }
+
+  public PgEventStore(
+    DataSource dataSource,
+    int fetchSize,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy,
+    EventSerializer serializer
+  ) {
+    this(dataSource, fetchSize, snapshotStore, snapshotPolicy, serializer, UNPARTITIONED);
+  }
+
+  public PgEventStore(
+    DataSource dataSource,
+    int fetchSize,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy,
+    EventSerializer serializer,
+    int eventsTablePartitions
+  ) {
+    this(dataSource, fetchSize, snapshotStore, snapshotPolicy, serializer, eventsTablePartitions, EventStoreMetrics.NOOP);
+  }
+
+  /**
+   * @param eventsTablePartitions number of hash partitions on `stream_id` for the events table,
+   *                              {@link #UNPARTITIONED} keeps the single table.
+   *                              It's applied when the table is created and can't be changed later.
+   */
+  public PgEventStore(
+    DataSource dataSource,
+    int fetchSize,
+    SnapshotStore snapshotStore,
+    SnapshotPolicy snapshotPolicy,
+    EventSerializer serializer,
+    int eventsTablePartitions,
+    EventStoreMetrics metrics
+  ) {
+    if (eventsTablePartitions < 0)
+      throw new IllegalArgumentException("Number of partitions cannot be negative");
+
+    this.dataSource = dataSource;
+    this.fetchSize = fetchSize;
+    this.snapshotStore = snapshotStore;
+    this.snapshotPolicy = snapshotPolicy;
+    this.serializer = serializer;
+    this.eventsTablePartitions = eventsTablePartitions;
+    this.metrics = metrics;
   }
 
   @Override
   public void init() {
-    executeSql(dbConnection, createStreamsTableSql);
-    executeSql(dbConnection, createEventsTableSql);
-    executeSql(dbConnection, createAppendFunctionSql);
+    withConnection(dataSource, connection -> {
+      executeSql(connection, createStreamsTableSql);
+
+      if (eventsTablePartitions != UNPARTITIONED && eventsTableKind(connection).equals(REGULAR_TABLE))
+        throw new IllegalStateException(
+          "Events table is not partitioned, call migrateToPartitionedEventsTable to move existing events"
+        );
+
+      executeSql(connection, eventsTablePartitions != UNPARTITIONED ?
+        createPartitionedEventsTableSql(eventsTablePartitions)
+        : createEventsTableSql
+      );
+      executeSql(connection, upgradeEventsTableSql);
+      executeSql(connection, createAppendFunctionSql);
+      executeSql(connection, createAppendEventsFunctionSql);
+      return null;
+    });
+
+    if (snapshotStore != null)
+      snapshotStore.init();
+  }
+
+  /**
+   * Moves events from an existing unpartitioned table into hash partitions.
+   * Runs in a single transaction holding an exclusive lock on the events table,
+   * so appends and reads are blocked until it's done.
+   * Call it before {@link #init()} when switching an existing database to partitions.
+   */
+  public void migrateToPartitionedEventsTable() {
+    if (eventsTablePartitions == UNPARTITIONED)
+      throw new IllegalStateException("Event store was not configured with events table partitions");
+
+    runInTransaction(dataSource, connection -> {
+      if (!eventsTableKind(connection).equals(REGULAR_TABLE))
+        return;
+
+      executeSql(connection, upgradeEventsTableSql);
+      executeSql(connection, detachUnpartitionedEventsTableSql);
+      executeSql(connection, createPartitionedEventsTableSql(eventsTablePartitions));
+      executeSql(connection, """
+        INSERT INTO events (id, data, binary_data, codec, stream_id, type, type_id, version, created)
+        SELECT id, data, binary_data, codec, stream_id, type, type_id, version, created
+        FROM events_unpartitioned;
+
+        DROP TABLE events_unpartitioned;
+        """
+      );
+    });
+  }
+
+  private static String eventsTableKind(Connection connection) {
+    return querySingleSql(
+      connection,
+      "SELECT coalesce((SELECT relkind::text FROM pg_class WHERE oid = to_regclass('events')), '') AS kind",
+      rs -> getString(rs, "kind")
+    );
   }
 
   @Override
@@ -30,27 +194,67 @@ public class PgEventStore implements EventStore {
     Object... events
   ) {
 
-    runInTransaction(dbConnection, connection ->
+    if (events.length == 0)
+      return;
+
+    var start = System.nanoTime();
+    var streamType = streamClass.getTypeName();
+
+    var ids = Arrays.stream(events)
+      .map(_ -> UUID.randomUUID().toString())
+      .toArray(String[]::new);
+
+    var payloads = new byte[events.length][];
+    var payloadsSize = 0L;
+    for (var i = 0; i < events.length; i++) {
+      var serializationStart = System.nanoTime();
+      payloads[i] = serializer.serialize(events[i]);
+      metrics.recordSerialization(streamType, payloads[i].length, System.nanoTime() - serializationStart);
+      payloadsSize += payloads[i].length;
+    }
+
+    // textual payloads go to jsonb column, binary ones to bytea column
+    var eventData = serializer.isBinary() ? null : Arrays.stream(payloads)
+      .map(payload -> new String(payload, StandardCharsets.UTF_8))
+      .toArray(String[]::new);
+
+    var binaryEventData = serializer.isBinary() ? payloads : null;
+
+    var eventTypes = Arrays.stream(events)
+      .map(event -> EventTypeMapper.toName(event.getClass()))
+      .toArray(String[]::new);
+
+    // null for types registered without compact id
+    var eventTypeIds = Arrays.stream(events)
+      .map(event -> EventTypeMapper.toTypeId(event.getClass()).orElse(null))
+      .toArray(Integer[]::new);
+
+    runInTransaction(dataSource, connection ->
     {
-      for (var event : events) {
-        boolean succeeded = querySingleSql(
-          connection,
-          "SELECT append_event(?::text, ?::jsonb, ?, ?::text, ?, ?) AS succeeded",
-          ps -> {
-            setStringParam(ps, 1, UUID.randomUUID().toString());
-            setStringParam(ps, 2, serialize(event));
-            setStringParam(ps, 3, EventTypeMapper.toName(event.getClass()));
-            setStringParam(ps, 4, streamId.toString());
-            setStringParam(ps, 5, streamClass.getTypeName());
-            setLong(ps, 6, expectedVersion);
-          },
-          rs -> getBoolean(rs, "succeeded")
-        );
+      boolean succeeded = querySingleSql(
+        connection,
+        "SELECT append_events(?::text[], ?::jsonb[], ?::bytea[], ?::text[], ?::int[], ?::text, ?::text, ?, ?) AS succeeded",
+        ps -> {
+          setArrayOf(connection, ps, 1, "text", ids);
+          setArrayOf(connection, ps, 2, "jsonb", eventData);
+          setArrayOf(connection, ps, 3, "bytea", binaryEventData);
+          setArrayOf(connection, ps, 4, "text", eventTypes);
+          setArrayOf(connection, ps, 5, "int4", eventTypeIds);
+          setStringParam(ps, 6, serializer.codec());
+          setStringParam(ps, 7, streamId);
+          setStringParam(ps, 8, streamType);
+          setLong(ps, 9, expectedVersion);
+        },
+        rs -> getBoolean(rs, "succeeded")
+      );
 
-        if (!succeeded)
-          throw new IllegalStateException("Expected version did not match the stream version!");
+      if (!succeeded) {
+        metrics.recordAppendConflict(streamType);
+        throw new IllegalStateException("Expected version did not match the stream version!");
       }
     });
+
+    metrics.recordAppend(streamType, events.length, payloadsSize, System.nanoTime() - start);
   }
 
   @Override
@@ -59,41 +263,313 @@ public class PgEventStore implements EventStore {
     Long atStreamVersion,
     LocalDateTime atTimestamp
   ) {
-    var atStreamCondition = atStreamVersion != null ? "AND version <= ?" : "";
-    var atTimestampCondition = atTimestamp != null ? "AND created <= ?" : "";
+    try (var events = readEvents(streamId, atStreamVersion, atTimestamp)) {
+      return events.toList();
+    }
+  }
+
+  @Override
+  public Stream<Object> readEvents(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    return readEvents(streamId, null, atStreamVersion, atTimestamp);
+  }
+
+  /**
+   * Starts from the latest snapshot at or before the requested version and
+   * timestamp and applies only events appended after it.
+   * When reading the current state, stores a new snapshot if the policy says so.
+   */
+  @Override
+  public <State, Event> Optional<State> aggregateStream(
+    Supplier<State> getDefault,
+    BiFunction<State, Event, State> evolve,
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    if (snapshotStore == null)
+      return EventStore.super.aggregateStream(getDefault, evolve, streamId, atStreamVersion, atTimestamp);
+
+    Optional<SnapshotStore.Snapshot<State>> snapshot =
+      snapshotStore.load(streamId, atStreamVersion, atTimestamp);
+
+    var snapshotVersion = snapshot.map(SnapshotStore.Snapshot::version).orElse(-1L);
+    var eventsSinceSnapshot = 0L;
+    State aggregate;
+
+    try (var events = readEvents(streamId, snapshotVersion, atStreamVersion, atTimestamp)) {
+      var iterator = events.iterator();
+
+      if (snapshot.isEmpty() && !iterator.hasNext()) {
+        return Optional.empty();
+      }
+
+      aggregate = snapshot.isPresent() ? snapshot.get().state() : getDefault.get();
+
+      while (iterator.hasNext()) {
+        aggregate = evolve.apply(aggregate, (Event) iterator.next());
+        eventsSinceSnapshot++;
+      }
+    }
+
+    var isReadingCurrentState = atStreamVersion == null && atTimestamp == null;
+    var lastSnapshotCreated = snapshot.map(SnapshotStore.Snapshot::created).orElse(null);
+
+    if (isReadingCurrentState && snapshotPolicy.shouldSnapshot(eventsSinceSnapshot, lastSnapshotCreated)) {
+      snapshotStore.store(streamId, snapshotVersion + eventsSinceSnapshot, aggregate);
+    }
+
+    return Optional.of(aggregate);
+  }
+
+  /**
+   * Reads events lazily, skipping events up to and including `afterVersion`.
+   * Used to read only the events that were appended after a snapshot.
+   */
+  public Stream<Object> readEvents(
+    String streamId,
+    Long afterVersion,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    var getStreamSql = readEventsSql[readEventsSqlVariant(
+      afterVersion != null,
+      atStreamVersion != null,
+      atTimestamp != null
+    )];
+
+    Consumer<PreparedStatement> setParams = ps -> {
+      var index = 1;
+      setStringParam(ps, index++, streamId.toString());
+      if (afterVersion != null)
+        setLong(ps, index++, afterVersion);
+      if (atStreamVersion != null)
+        setLong(ps, index++, atStreamVersion);
+      if (atTimestamp != null) {
+        setStringParam(ps, index++, streamId);
+        setLocalDateTime(ps, index, atTimestamp);
+      }
+    };
+
+    var start = System.nanoTime();
+    var connection = getConnection(dataSource);
+
+    try {
+      // without metrics there's nothing to count, so events are mapped directly
+      if (metrics == EventStoreMetrics.NOOP)
+        return streamSql(connection, getStreamSql, setParams, this::deserializeEvent, fetchSize)
+          .onClose(() -> close(connection));
+
+      var streamLength = new AtomicInteger();
+
+      return streamSql(
+        connection,
+        getStreamSql,
+        setParams,
+        rs -> {
+          streamLength.incrementAndGet();
+          return deserializeEvent(rs);
+        },
+        fetchSize
+      ).onClose(() -> {
+        close(connection);
+        // stream is read lazily, so it's measured until the caller closes it
+        metrics.recordRead(null, streamLength.get(), System.nanoTime() - start);
+      });
+    } catch (RuntimeException e) {
+      close(connection);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns version of the last event created at or before the timestamp,
+   * read from the (stream_id, created) index without touching event payloads.
+   */
+  public Optional<Long> getStreamVersionAt(String streamId, LocalDateTime atTimestamp) {
+    return withConnection(dataSource, connection ->
+      querySql(
+        connection,
+        streamVersionAtTimestampSql,
+        ps -> {
+          setStringParam(ps, 1, streamId);
+          setLocalDateTime(ps, 2, atTimestamp);
+        },
+        rs -> getLong(rs, "version")
+      ).stream().findFirst()
+    );
+  }
+
+  /**
+   * Resolves the same timestamp for many streams in a single query.
+   * Streams that didn't exist at that time are not included in the result.
+   */
+  public Map<String, Long> getStreamVersionsAt(Collection<String> streamIds, LocalDateTime atTimestamp) {
+    return withConnection(dataSource, connection ->
+      querySql(
+        connection,
+        streamVersionsAtTimestampSql,
+        ps -> {
+          setArrayOf(connection, ps, 1, "text", streamIds.toArray(String[]::new));
+          setLocalDateTime(ps, 2, atTimestamp);
+        },
+        rs -> Map.entry(getString(rs, "stream_id"), getLong(rs, "version"))
+      ).stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))
+    );
+  }
+
+  /**
+   * Rebuilds state of many streams as of the same timestamp (e.g. for audit reports).
+   * Events of all streams are read through a single cursor ordered by stream, so only
+   * one aggregate is kept in progress at a time.
+   * Streams that didn't exist at that time are not included in the result.
+   */
+  public <State, Event> Map<String, State> aggregateStreamsAt(
+    Supplier<State> getDefault,
+    BiFunction<State, Event, State> evolve,
+    Collection<String> streamIds,
+    LocalDateTime atTimestamp
+  ) {
+    var result = new HashMap<String, State>();
+    var connection = getConnection(dataSource);
+    Stream<Map.Entry<String, Object>> events;
+
+    try {
+      events = streamSql(
+        connection,
+        readEventsOfStreamsAtTimestampSql,
+        ps -> {
+          setArrayOf(connection, ps, 1, "text", streamIds.toArray(String[]::new));
+          setLocalDateTime(ps, 2, atTimestamp);
+        },
+        rs -> Map.entry(getString(rs, "stream_id"), deserializeEvent(rs)),
+        fetchSize
+      ).onClose(() -> close(connection));
+    } catch (RuntimeException e) {
+      close(connection);
+      throw e;
+    }
+
+    try (events) {
+      String currentStreamId = null;
+      State aggregate = null;
+
+      for (var iterator = events.iterator(); iterator.hasNext(); ) {
+        var event = iterator.next();
+
+        if (!event.getKey().equals(currentStreamId)) {
+          if (currentStreamId != null)
+            result.put(currentStreamId, aggregate);
+
+          currentStreamId = event.getKey();
+          aggregate = getDefault.get();
+        }
+
+        aggregate = evolve.apply(aggregate, (Event) event.getValue());
+      }
+
+      if (currentStreamId != null)
+        result.put(currentStreamId, aggregate);
+    }
+
+    return result;
+  }
+
+  private Object deserializeEvent(ResultSet rs) {
+    var eventTypeName = getString(rs, "type");
+    var eventTypeId = getInteger(rs, "type_id");
+    var eventSerializer = EventSerializer.forCodec(getString(rs, "codec"));
+
+    var eventClass = (eventTypeId != null ? EventTypeMapper.toClass(eventTypeId) : Optional.<Class>empty())
+      .or(() -> EventTypeMapper.toClass(eventTypeName))
+      .get();
+
+    // for jsonb column driver returns bytes of the textual value, so no intermediate String is needed
+    var payload = getBytes(rs, eventSerializer.isBinary() ? "binary_data" : "data");
+
+    var start = System.nanoTime();
+    var event = eventSerializer.deserialize(eventClass, eventTypeName, payload).get();
+    metrics.recordDeserialization(null, payload.length, System.nanoTime() - start);
+
+    return event;
+  }
+
+  private static int readEventsSqlVariant(
+    boolean hasAfterVersion,
+    boolean hasAtStreamVersion,
+    boolean hasAtTimestamp
+  ) {
+    return (hasAfterVersion ? 1 : 0) | (hasAtStreamVersion ? 2 : 0) | (hasAtTimestamp ? 4 : 0);
+  }
+
+  private static String buildReadEventsSql(int variant) {
+    var afterVersionCondition = (variant & 1) != 0 ? " AND version > ?" : "";
+    var atStreamCondition = (variant & 2) != 0 ? " AND version <= ?" : "";
+    // timestamp is resolved to version first, so the read is a version-bounded range scan
+    var atTimestampCondition = (variant & 4) != 0 ? " AND version <= (" + streamVersionAtTimestampSql + ")" : "";
 
-    var getStreamSql = """
-      SELECT id, data, stream_id, type, version, created
+    return """
+      SELECT id, data, binary_data, codec, stream_id, type, type_id, version, created
       FROM events
       WHERE stream_id = ?::text
       """
+      + afterVersionCondition
       + atStreamCondition
       + atTimestampCondition
       + " ORDER BY version";
-
-    return querySql(
-      dbConnection,
-      getStreamSql,
-      ps -> {
-        var index = 1;
-        setStringParam(ps, index++, streamId.toString());
-        if (atStreamVersion != null)
-          setLong(ps, index++, atStreamVersion);
-        if (atTimestamp != null)
-          setLocalDateTime(ps, index, atTimestamp);
-      },
-      rs -> {
-        var eventTypeName = getString(rs, "type");
-        return deserialize(
-          EventTypeMapper.toClass(eventTypeName).get(),
-          eventTypeName,
-          getString(rs, "data")
-        ).get();
-      }
-    );
   }
 
-  private final Connection dbConnection;
+  // SQL for each combination of optional filters is built once,
+  // so the same text hits statement cache and server-side prepared statements
+  private static final String[] readEventsSql = IntStream.range(0, 8)
+    .mapToObj(PgEventStore::buildReadEventsSql)
+    .toArray(String[]::new);
+
+  // `created` is the append transaction start time, so it's not strictly monotonic with version
+  // when appends to the same stream overlap; the last created event wins, with version as a tie-breaker
+  static final String streamVersionAtTimestampSql = """
+    SELECT version
+    FROM events
+    WHERE stream_id = ?::text AND created <= ?
+    ORDER BY created DESC, version DESC
+    LIMIT 1
+    """;
+
+  private static final String streamVersionsAtTimestampSql = """
+    SELECT s.stream_id, v.version
+    FROM unnest(?::text[]) AS s(stream_id)
+    CROSS JOIN LATERAL (
+        SELECT e.version
+        FROM events e
+        WHERE e.stream_id = s.stream_id AND e.created <= ?
+        ORDER BY e.created DESC, e.version DESC
+        LIMIT 1
+    ) v
+    """;
+
+  private static final String readEventsOfStreamsAtTimestampSql =
+    "WITH versions AS (" + streamVersionsAtTimestampSql + ")"
+      + """
+      SELECT e.stream_id, e.data, e.binary_data, e.codec, e.type, e.type_id, e.version
+      FROM versions v
+      JOIN events e ON e.stream_id = v.stream_id AND e.version <= v.version
+      ORDER BY e.stream_id, e.version
+      """;
+
+  public static final int DEFAULT_FETCH_SIZE = 500;
+  public static final int UNPARTITIONED = 0;
+  private static final String REGULAR_TABLE = "r";
+
+  private final DataSource dataSource;
+  private final int fetchSize;
+  private final SnapshotStore snapshotStore;
+  private final SnapshotPolicy snapshotPolicy;
+  private final EventSerializer serializer;
+  private final int eventsTablePartitions;
+  private final EventStoreMetrics metrics;
 
   private final String createStreamsTableSql = """
     CREATE TABLE IF NOT EXISTS streams(
@@ -116,6 +592,72 @@ public class PgEventStore implements EventStore {
     );
     """;
 
+  /**
+   * Primary key has to contain the partition key, so (stream_id, version) is used instead of id.
+   * Reads and appends filter by `stream_id`, so they touch a single partition
+   * with its own, smaller index.
+   */
+  private static String createPartitionedEventsTableSql(int partitions) {
+    var createPartitionsSql = IntStream.range(0, partitions)
+      .mapToObj(remainder ->
+        "CREATE TABLE IF NOT EXISTS events_p%d PARTITION OF events FOR VALUES WITH (MODULUS %d, REMAINDER %d);"
+          .formatted(remainder, partitions, remainder)
+      )
+      .collect(Collectors.joining("\n"));
+
+    return """
+      CREATE TABLE IF NOT EXISTS events(
+            id             text                      NOT NULL,
+            data           JSONB                     NULL,
+            binary_data    BYTEA                     NULL,
+            codec          TEXT                      NOT NULL    DEFAULT 'json',
+            stream_id      text                      NOT NULL,
+            type           TEXT                      NOT NULL,
+            type_id        INTEGER                   NULL,
+            version        BIGINT                    NOT NULL,
+            created        timestamp with time zone  NOT NULL    default (now()),
+            FOREIGN KEY(stream_id) REFERENCES streams(id),
+            CONSTRAINT events_stream_and_version PRIMARY KEY(stream_id, version)
+      ) PARTITION BY HASH (stream_id);
+      """
+      + createPartitionsSql;
+  }
+
+  // index names are unique per schema, so they're renamed together with the old table
+  private final String detachUnpartitionedEventsTableSql = """
+    LOCK TABLE events IN ACCESS EXCLUSIVE MODE;
+
+    ALTER TABLE events RENAME TO events_unpartitioned;
+
+    DO $$
+    DECLARE
+        index_name text;
+    BEGIN
+        FOR index_name IN
+            SELECT c.relname
+            FROM pg_index i
+            JOIN pg_class c ON c.oid = i.indexrelid
+            WHERE i.indrelid = 'events_unpartitioned'::regclass
+        LOOP
+            EXECUTE format('ALTER INDEX %I RENAME TO %I', index_name, left(index_name, 50) || '_unpartitioned');
+        END LOOP;
+    END;
+    $$;
+    """;
+
+  private final String upgradeEventsTableSql = """
+    -- payload is stored either as jsonb or binary, depending on the codec
+    ALTER TABLE events ALTER COLUMN data DROP NOT NULL;
+    ALTER TABLE events ADD COLUMN IF NOT EXISTS binary_data BYTEA NULL;
+    ALTER TABLE events ADD COLUMN IF NOT EXISTS codec TEXT NOT NULL DEFAULT 'json';
+
+    -- compact id of registered event type, type name is kept as a fallback
+    ALTER TABLE events ADD COLUMN IF NOT EXISTS type_id INTEGER NULL;
+
+    -- resolves timestamp to stream version for point-in-time reads
+    CREATE INDEX IF NOT EXISTS events_stream_id_created ON events(stream_id, created, version);
+    """;
+
   private final String createAppendFunctionSql = """
     CREATE OR REPLACE FUNCTION append_event(
         id text,
@@ -171,4 +713,79 @@ public class PgEventStore implements EventStore {
         END;
         $$;
     """;
+
+  private final String createAppendEventsFunctionSql = """
+    CREATE OR REPLACE FUNCTION append_events(
+        ids_array text[],
+        data_array jsonb[],
+        binary_data_array bytea[],
+        types_array text[],
+        type_ids_array int[],
+        codec text,
+        stream_id text,
+        stream_type text,
+        expected_stream_version bigint default null
+    ) RETURNS boolean
+        LANGUAGE plpgsql
+        AS $$
+        DECLARE
+            events_count int;
+            stream_version bigint;
+        BEGIN
+            -- calculate number of events
+            events_count := coalesce(array_length(ids_array, 1), 0);
+
+            -- get stream version
+            SELECT
+                version INTO stream_version
+            FROM streams as s
+            WHERE
+                s.id = stream_id FOR UPDATE;
+
+            -- if stream doesn't exist - create new one with version 0
+            IF stream_version IS NULL THEN
+                stream_version := -1;
+
+                INSERT INTO streams
+                    (id, type, version)
+                VALUES
+                    (stream_id, stream_type, stream_version);
+            END IF;
+
+            -- check optimistic concurrency once for the whole batch
+            IF expected_stream_version IS NOT NULL AND stream_version != expected_stream_version THEN
+                RETURN FALSE;
+            END IF;
+
+            -- append all events with consecutive versions
+            -- only one of data arrays is passed, unnest pads the other one with nulls
+            INSERT INTO events
+                (id, data, binary_data, codec, stream_id, type, type_id, version)
+            SELECT
+                id,
+                data,
+                binary_data,
+                codec,
+                stream_id,
+                type,
+                type_id,
+                stream_version + ordinality
+            FROM unnest(
+                ids_array,
+                data_array,
+                binary_data_array,
+                types_array,
+                type_ids_array
+            ) WITH ORDINALITY AS t(id, data, binary_data, type, type_id);
+
+            -- update stream version
+            UPDATE streams as s
+                SET version = stream_version + events_count
+            WHERE
+                s.id = stream_id;
+
+            RETURN TRUE;
+        END;
+        $$;
+    """;
 }
@@ -0,0 +1,129 @@
+package io.eventdriven.buildyourowneventstore;
+
+import io.eventdriven.buildyourowneventstore.tools.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static io.eventdriven.buildyourowneventstore.JsonEventSerializer.deserialize;
+import static io.eventdriven.buildyourowneventstore.JsonEventSerializer.serialize;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
+
+public class PgSnapshotStore implements SnapshotStore {
+
+  public PgSnapshotStore(Connection dbConnection) {
+    this(new SingleConnectionDataSource(dbConnection));
+  }
+
+  public PgSnapshotStore(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  @Override
+  public void init() {
+    withConnection(dataSource, connection -> {
+      executeSql(connection, createSnapshotsTableSql);
+      return null;
+    });
+  }
+
+  @Override
+  public <State> Optional<Snapshot<State>> load(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    var getSnapshotSql = atStreamVersion != null ?
+      (atTimestamp != null ? getSnapshotAtVersionAndTimestampSql : getSnapshotAtVersionSql)
+      : (atTimestamp != null ? getSnapshotAtTimestampSql : getLatestSnapshotSql);
+
+    var snapshots = withConnection(dataSource, connection -> querySql(
+      connection,
+      getSnapshotSql,
+      ps -> {
+        var index = 1;
+        setStringParam(ps, index++, streamId);
+        if (atStreamVersion != null)
+          setLong(ps, index++, atStreamVersion);
+        if (atTimestamp != null) {
+          setStringParam(ps, index++, streamId);
+          setLocalDateTime(ps, index, atTimestamp);
+        }
+      },
+      rs -> {
+        var stateTypeName = getString(rs, "type");
+        @SuppressWarnings("unchecked")
+        var state = (State) deserialize(
+          EventTypeMapper.toClass(stateTypeName).get(),
+          stateTypeName,
+          getString(rs, "data")
+        ).get();
+
+        return new Snapshot<>(
+          getLong(rs, "version"),
+          state,
+          getLocalDateTime(rs, "created")
+        );
+      }
+    ));
+
+    return snapshots.stream().findFirst();
+  }
+
+  @Override
+  public void store(String streamId, long version, Object state) {
+    runInTransaction(dataSource, connection ->
+      executeSql(
+        connection,
+        """
+          INSERT INTO snapshots (stream_id, version, type, data)
+          VALUES (?::text, ?, ?::text, ?::jsonb)
+          ON CONFLICT (stream_id, version) DO NOTHING
+          """,
+        ps -> {
+          setStringParam(ps, 1, streamId);
+          setLong(ps, 2, version);
+          setStringParam(ps, 3, EventTypeMapper.toName(state.getClass()));
+          setStringParam(ps, 4, serialize(state));
+        }
+      )
+    );
+  }
+
+  private final DataSource dataSource;
+
+  private static String buildGetSnapshotSql(boolean hasAtStreamVersion, boolean hasAtTimestamp) {
+    var atStreamCondition = hasAtStreamVersion ? " AND version <= ?" : "";
+    // snapshot can be used only if it doesn't go past the stream version at the timestamp
+    var atTimestampCondition = hasAtTimestamp ?
+      " AND version <= (" + PgEventStore.streamVersionAtTimestampSql + ")"
+      : "";
+
+    return """
+      SELECT version, type, data, created
+      FROM snapshots s
+      WHERE stream_id = ?::text
+      """
+      + atStreamCondition
+      + atTimestampCondition
+      + " ORDER BY version DESC LIMIT 1";
+  }
+
+  private static final String getLatestSnapshotSql = buildGetSnapshotSql(false, false);
+  private static final String getSnapshotAtVersionSql = buildGetSnapshotSql(true, false);
+  private static final String getSnapshotAtTimestampSql = buildGetSnapshotSql(false, true);
+  private static final String getSnapshotAtVersionAndTimestampSql = buildGetSnapshotSql(true, true);
+
+  private final String createSnapshotsTableSql = """
+    CREATE TABLE IF NOT EXISTS snapshots(
+          stream_id      text                      NOT NULL,
+          version        BIGINT                    NOT NULL,
+          type           TEXT                      NOT NULL,
+          data           JSONB                     NOT NULL,
+          created        timestamp with time zone  NOT NULL    default (now()),
+          PRIMARY KEY (stream_id, version)
+    );
+    """;
+}
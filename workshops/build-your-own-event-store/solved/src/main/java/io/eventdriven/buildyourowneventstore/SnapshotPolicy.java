@@ -0,0 +1,26 @@
+package io.eventdriven.buildyourowneventstore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@FunctionalInterface
+public interface SnapshotPolicy {
+  /**
+   * @param eventsSinceSnapshot number of events applied on top of the last snapshot
+   * @param lastSnapshotCreated when the last snapshot was taken, null if there is none yet
+   */
+  boolean shouldSnapshot(long eventsSinceSnapshot, LocalDateTime lastSnapshotCreated);
+
+  static SnapshotPolicy everyNEvents(long eventsCount) {
+    return (eventsSinceSnapshot, _) -> eventsSinceSnapshot >= eventsCount;
+  }
+
+  static SnapshotPolicy every(Duration interval) {
+    return (eventsSinceSnapshot, lastSnapshotCreated) ->
+      eventsSinceSnapshot > 0 &&
+        (lastSnapshotCreated == null
+          || lastSnapshotCreated.plus(interval).isBefore(LocalDateTime.now()));
+  }
+
+  SnapshotPolicy NEVER = (_, _) -> false;
+}
@@ -0,0 +1,27 @@
+package io.eventdriven.buildyourowneventstore;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface SnapshotStore {
+  void init();
+
+  /**
+   * Loads the latest snapshot taken at or before the requested stream version
+   * and timestamp. Both bounds are optional.
+   */
+  <State> Optional<Snapshot<State>> load(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  );
+
+  void store(String streamId, long version, Object state);
+
+  record Snapshot<State>(
+    long version,
+    State state,
+    LocalDateTime created
+  ) {
+  }
+}
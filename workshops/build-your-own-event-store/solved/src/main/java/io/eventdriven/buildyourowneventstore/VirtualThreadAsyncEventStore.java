@@ -0,0 +1,88 @@
+package io.eventdriven.buildyourowneventstore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls of a blocking (e.g. JDBC) event store on virtual threads, so waiting for
+ * the database doesn't hold a platform thread and many commands can be in flight at once.
+ * <p>
+ * Number of calls running at once is bounded (e.g. to the connection pool size), the rest wait
+ * on a semaphore, which parks only virtual threads. Store has to be safe for concurrent use,
+ * so for a store with a single connection the limit should be 1.
+ */
+public class VirtualThreadAsyncEventStore implements AsyncEventStore, AutoCloseable {
+  private final EventStore eventStore;
+  private final Semaphore permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public VirtualThreadAsyncEventStore(EventStore eventStore, int maxConcurrentCalls) {
+    if (maxConcurrentCalls < 1) {
+      throw new IllegalArgumentException("Max concurrent calls must be positive");
+    }
+    this.eventStore = eventStore;
+    this.permits = new Semaphore(maxConcurrentCalls, true);
+  }
+
+  @Override
+  public <Stream> CompletableFuture<Void> appendEvents(
+    Class<Stream> streamClass,
+    String streamId,
+    Long expectedVersion,
+    Object... events
+  ) {
+    return run(() -> {
+      eventStore.appendEvents(streamClass, streamId, expectedVersion, events);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<List<Object>> getEvents(
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    return run(() -> eventStore.getEvents(streamId, atStreamVersion, atTimestamp));
+  }
+
+  // folded on the same virtual thread, so the store can keep streaming from the cursor
+  @Override
+  public <Stream, Event> CompletableFuture<Optional<Stream>> aggregateStream(
+    Supplier<Stream> getDefault,
+    BiFunction<Stream, Event, Stream> evolve,
+    String streamId,
+    Long atStreamVersion,
+    LocalDateTime atTimestamp
+  ) {
+    return run(() -> eventStore.aggregateStream(getDefault, evolve, streamId, atStreamVersion, atTimestamp));
+  }
+
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  private <Result> CompletableFuture<Result> run(Supplier<Result> call) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      try {
+        return call.get();
+      } finally {
+        permits.release();
+      }
+    }, executor);
+  }
+}
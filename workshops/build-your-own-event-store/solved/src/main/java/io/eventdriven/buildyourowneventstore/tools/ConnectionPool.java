@@ -0,0 +1,170 @@
+package io.eventdriven.buildyourowneventstore.tools;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Minimal, fixed-size connection pool. Physical connections are opened lazily
+ * and returned to the pool when the borrowed connection is closed.
+ * Any pending transaction is rolled back and auto-commit restored on return.
+ * Each physical connection keeps its own {@link StatementCache}.
+ * Use a dedicated pool (e.g. HikariCP) in production, as any DataSource can be
+ * passed to the event store.
+ */
+public class ConnectionPool extends DataSourceBase implements AutoCloseable {
+  private final String url;
+  private final String userName;
+  private final String password;
+  private final Duration acquireTimeout;
+  private final StatementCache.Settings statementCacheSettings;
+  private final StatementCache.Metrics statementCacheMetrics = new StatementCache.Metrics();
+  private final Semaphore permits;
+  private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<>();
+  private volatile boolean closed;
+
+  public ConnectionPool(String url, String userName, String password, int maxSize) {
+    this(url, userName, password, maxSize, Duration.ofSeconds(30), StatementCache.Settings.DEFAULT);
+  }
+
+  public ConnectionPool(
+    String url,
+    String userName,
+    String password,
+    int maxSize,
+    Duration acquireTimeout,
+    StatementCache.Settings statementCacheSettings
+  ) {
+    this.url = url;
+    this.userName = userName;
+    this.password = password;
+    this.acquireTimeout = acquireTimeout;
+    this.statementCacheSettings = statementCacheSettings;
+    this.permits = new Semaphore(maxSize, true);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (closed)
+      throw new SQLException("Connection pool was closed");
+
+    try {
+      if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS))
+        throw new SQLTimeoutException("Timed out after %s waiting for a connection".formatted(acquireTimeout));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException(e);
+    }
+
+    try {
+      var connection = idle.poll();
+
+      while (connection != null && connection.physical().isClosed()) {
+        connection.statements().close();
+        connection = idle.poll();
+      }
+
+      if (connection == null) {
+        var physical = DriverManager.getConnection(url, userName, password);
+        connection = new PooledConnection(
+          physical,
+          new StatementCache(physical, statementCacheSettings, statementCacheMetrics)
+        );
+      }
+
+      return borrowed(connection);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  public StatementCache.Metrics statementCacheMetrics() {
+    return statementCacheMetrics;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+
+    PooledConnection connection;
+    while ((connection = idle.poll()) != null) {
+      closeQuietly(connection);
+    }
+  }
+
+  private Connection borrowed(PooledConnection connection) {
+    var returned = new AtomicBoolean(false);
+    var physical = connection.physical();
+    var statements = connection.statements();
+
+    return (Connection) Proxy.newProxyInstance(
+      Connection.class.getClassLoader(),
+      new Class<?>[]{Connection.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "close" -> {
+            if (returned.compareAndSet(false, true))
+              giveBack(connection);
+            return null;
+          }
+          case "isClosed" -> {
+            if (returned.get())
+              return true;
+          }
+          default -> {
+            if (returned.get())
+              throw new SQLException("Connection was already returned to the pool");
+          }
+        }
+
+        if (statements.canServe(method, args))
+          return statements.prepareStatement((String) args[0]);
+
+        try {
+          return method.invoke(physical, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    );
+  }
+
+  private void giveBack(PooledConnection connection) {
+    var physical = connection.physical();
+    try {
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+        physical.setAutoCommit(true);
+      }
+
+      if (closed)
+        closeQuietly(connection);
+      else
+        idle.offer(connection);
+    } catch (SQLException e) {
+      closeQuietly(connection);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static void closeQuietly(PooledConnection connection) {
+    try {
+      connection.statements().close();
+      connection.physical().close();
+    } catch (SQLException ignored) {
+    }
+  }
+
+  private record PooledConnection(Connection physical, StatementCache statements) {
+  }
+}
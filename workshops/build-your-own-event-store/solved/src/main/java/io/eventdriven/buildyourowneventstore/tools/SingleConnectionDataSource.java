@@ -0,0 +1,53 @@
+package io.eventdriven.buildyourowneventstore.tools;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+
+/**
+ * Exposes a single, externally managed connection as a data source.
+ * Closing borrowed connection does not close the underlying one.
+ * NOT thread-safe, as all callers share the same connection.
+ */
+public class SingleConnectionDataSource extends DataSourceBase {
+  private final Connection connection;
+  private final StatementCache.Metrics statementCacheMetrics = new StatementCache.Metrics();
+
+  public SingleConnectionDataSource(Connection dbConnection) {
+    this(dbConnection, StatementCache.Settings.DEFAULT);
+  }
+
+  public SingleConnectionDataSource(
+    Connection dbConnection,
+    StatementCache.Settings statementCacheSettings
+  ) {
+    var statements = new StatementCache(dbConnection, statementCacheSettings, statementCacheMetrics);
+
+    this.connection = (Connection) Proxy.newProxyInstance(
+      Connection.class.getClassLoader(),
+      new Class<?>[]{Connection.class},
+      (proxy, method, args) -> {
+        if (method.getName().equals("close"))
+          return null;
+
+        if (statements.canServe(method, args))
+          return statements.prepareStatement((String) args[0]);
+
+        try {
+          return method.invoke(dbConnection, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    );
+  }
+
+  @Override
+  public Connection getConnection() {
+    return connection;
+  }
+
+  public StatementCache.Metrics statementCacheMetrics() {
+    return statementCacheMetrics;
+  }
+}
@@ -2,11 +2,18 @@ package io.eventdriven.buildyourowneventstore.tools;
 
 import org.postgresql.util.PGobject;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class SqlInvoker {
   public static void executeSql(Connection dbConnection, String sql) {
@@ -17,6 +24,19 @@ public final class SqlInvoker {
     }
   }
 
+  public static int executeSql(
+    Connection dbConnection,
+    String sql,
+    Consumer<PreparedStatement> setParams
+  ) {
+    try (var st = dbConnection.prepareStatement(sql)) {
+      setParams.accept(st);
+      return st.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static <Result> ArrayList<Result> querySql(
     Connection dbConnection,
     String sql,
@@ -46,20 +66,109 @@ public final class SqlInvoker {
     }
   }
 
+  /**
+   * Lazily streams query results using a forward-only cursor.
+   * PostgreSQL JDBC driver fetches rows in batches of `fetchSize` only outside
+   * of auto-commit mode, so auto-commit is disabled for the time of the read
+   * and restored when the returned stream is closed.
+   * Stream MUST be closed by the caller (e.g. with try-with-resources).
+   */
+  public static <Result> Stream<Result> streamSql(
+    Connection dbConnection,
+    String sql,
+    Consumer<PreparedStatement> setParams,
+    Function<ResultSet, Result> map,
+    int fetchSize
+  ) {
+    PreparedStatement st = null;
+    ResultSet rs = null;
+    boolean restoreAutoCommit = false;
+    try {
+      restoreAutoCommit = dbConnection.getAutoCommit();
+      if (restoreAutoCommit)
+        dbConnection.setAutoCommit(false);
+
+      st = dbConnection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      st.setFetchSize(fetchSize);
+      setParams.accept(st);
+      rs = st.executeQuery();
+
+      var cursor = new ResultSetCursor<>(dbConnection, st, rs, map, restoreAutoCommit);
+
+      return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL),
+        false
+      ).onClose(cursor::close);
+    } catch (SQLException | RuntimeException e) {
+      new ResultSetCursor<>(dbConnection, st, rs, map, restoreAutoCommit).close();
+      throw e instanceof RuntimeException re ? re : new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Runs callback in transaction with the connection default isolation level (READ COMMITTED).
+   * Event store doesn't need a stricter one, as appends lock the stream row with `SELECT ... FOR UPDATE`.
+   * Rolls back on any failure and restores the previous auto-commit setting afterwards,
+   * so the connection can be safely returned to the pool.
+   */
   public static void runInTransaction(
     Connection dbConnection,
     Consumer<Connection> callback
   ) {
     try {
+      var previousAutoCommit = dbConnection.getAutoCommit();
+
       dbConnection.setAutoCommit(false);
-      callback.accept(dbConnection);
-      dbConnection.commit();
-    } catch (SQLException e) {
       try {
+        callback.accept(dbConnection);
+        dbConnection.commit();
+      } catch (SQLException | RuntimeException e) {
         dbConnection.rollback();
-      } catch (SQLException ex) {
-        throw new RuntimeException(ex);
+        throw e;
+      } finally {
+        dbConnection.setAutoCommit(previousAutoCommit);
       }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static void runInTransaction(
+    DataSource dataSource,
+    Consumer<Connection> callback
+  ) {
+    withConnection(dataSource, connection -> {
+      runInTransaction(connection, callback);
+      return null;
+    });
+  }
+
+  /**
+   * Borrows connection from the data source for the time of the callback.
+   */
+  public static <Result> Result withConnection(
+    DataSource dataSource,
+    Function<Connection, Result> callback
+  ) {
+    try (var connection = dataSource.getConnection()) {
+      return callback.apply(connection);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static Connection getConnection(DataSource dataSource) {
+    try {
+      return dataSource.getConnection();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static void close(Connection dbConnection) {
+    try {
+      dbConnection.close();
+    } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
@@ -130,6 +239,11 @@ public final class SqlInvoker {
 
   public static void setArrayOf(Connection dbConnection, PreparedStatement ps, int index, String columnType, Object[] value) {
     try {
+      if (value == null) {
+        ps.setNull(index, Types.ARRAY);
+        return;
+      }
+
       var array = dbConnection.createArrayOf(columnType, value);
       ps.setArray(index, array);
     } catch (SQLException e) {
@@ -145,6 +259,40 @@ public final class SqlInvoker {
     }
   }
 
+  public static byte[] getBytes(ResultSet resultSet, String columnName) {
+    try {
+      return resultSet.getBytes(columnName);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static Integer getInteger(ResultSet resultSet, String columnName) {
+    try {
+      var value = resultSet.getInt(columnName);
+      return resultSet.wasNull() ? null : value;
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static long getLong(ResultSet resultSet, String columnName) {
+    try {
+      return resultSet.getLong(columnName);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static LocalDateTime getLocalDateTime(ResultSet resultSet, String columnName) {
+    try {
+      var timestamp = resultSet.getTimestamp(columnName);
+      return timestamp != null ? timestamp.toLocalDateTime() : null;
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static boolean getBoolean(ResultSet resultSet, String columnName) {
     try {
       return resultSet.getBoolean(columnName);
@@ -152,4 +300,64 @@ public final class SqlInvoker {
       throw new RuntimeException(e);
     }
   }
+
+  private static class ResultSetCursor<Result> implements Iterator<Result>, AutoCloseable {
+    private final Connection dbConnection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final Function<ResultSet, Result> map;
+    private final boolean restoreAutoCommit;
+    private Boolean hasNext;
+
+    private ResultSetCursor(
+      Connection dbConnection,
+      Statement statement,
+      ResultSet resultSet,
+      Function<ResultSet, Result> map,
+      boolean restoreAutoCommit
+    ) {
+      this.dbConnection = dbConnection;
+      this.statement = statement;
+      this.resultSet = resultSet;
+      this.map = map;
+      this.restoreAutoCommit = restoreAutoCommit;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (hasNext == null) {
+        try {
+          hasNext = resultSet.next();
+        } catch (SQLException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return hasNext;
+    }
+
+    @Override
+    public Result next() {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      hasNext = null;
+      return map.apply(resultSet);
+    }
+
+    @Override
+    public void close() {
+      try {
+        if (resultSet != null)
+          resultSet.close();
+        if (statement != null)
+          statement.close();
+        if (restoreAutoCommit) {
+          dbConnection.commit();
+          dbConnection.setAutoCommit(true);
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
 }
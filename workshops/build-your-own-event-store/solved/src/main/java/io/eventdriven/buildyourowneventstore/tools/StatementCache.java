@@ -0,0 +1,175 @@
+package io.eventdriven.buildyourowneventstore.tools;
+
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps prepared statements of a single physical connection keyed by SQL text,
+ * so hot queries are not parsed and planned on each call.
+ * Statements are checked out while used and returned to the cache when closed,
+ * so the same SQL can still be executed in parallel (e.g. nested reads).
+ * Least recently used statements are closed when the cache is full.
+ */
+public final class StatementCache {
+  private final Connection connection;
+  private final Settings settings;
+  private final Metrics metrics;
+  private final LinkedHashMap<String, PreparedStatement> idle;
+
+  public StatementCache(Connection connection, Settings settings, Metrics metrics) {
+    this.connection = connection;
+    this.settings = settings;
+    this.metrics = metrics;
+    this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() <= settings.maxStatementsPerConnection())
+          return false;
+
+        metrics.evictions.increment();
+        closeQuietly(eldest.getValue());
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns true if the connection method call can be served from the cache.
+   * Only plain, forward-only and read-only statements are cached.
+   */
+  public boolean canServe(Method method, Object[] args) {
+    if (!settings.isEnabled() || !method.getName().equals("prepareStatement") || args == null)
+      return false;
+
+    return args.length == 1
+      || (args.length == 3
+      && args[1].equals(ResultSet.TYPE_FORWARD_ONLY)
+      && args[2].equals(ResultSet.CONCUR_READ_ONLY));
+  }
+
+  public synchronized PreparedStatement prepareStatement(String sql) throws SQLException {
+    var statement = idle.remove(sql);
+
+    if (statement != null) {
+      metrics.hits.increment();
+    } else {
+      metrics.misses.increment();
+      statement = connection.prepareStatement(sql);
+      statement.unwrap(PGStatement.class).setPrepareThreshold(settings.prepareThreshold());
+    }
+
+    return checkedOut(sql, statement);
+  }
+
+  public synchronized void close() {
+    idle.values().forEach(StatementCache::closeQuietly);
+    idle.clear();
+  }
+
+  private PreparedStatement checkedOut(String sql, PreparedStatement statement) {
+    var returned = new AtomicBoolean(false);
+
+    return (PreparedStatement) Proxy.newProxyInstance(
+      PreparedStatement.class.getClassLoader(),
+      new Class<?>[]{PreparedStatement.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "close" -> {
+            if (returned.compareAndSet(false, true))
+              giveBack(sql, statement);
+            return null;
+          }
+          case "isClosed" -> {
+            if (returned.get())
+              return true;
+          }
+        }
+
+        try {
+          return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    );
+  }
+
+  private synchronized void giveBack(String sql, PreparedStatement statement) throws SQLException {
+    if (statement.isClosed())
+      return;
+
+    if (connection.isClosed() || idle.containsKey(sql)) {
+      statement.close();
+      return;
+    }
+
+    statement.clearParameters();
+    statement.clearWarnings();
+    idle.put(sql, statement);
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException ignored) {
+    }
+  }
+
+  /**
+   * @param maxStatementsPerConnection number of statements kept per connection, 0 disables the cache
+   * @param prepareThreshold number of executions after which PostgreSQL JDBC driver
+   *                         switches to a server-side prepared statement (skipping parse/plan)
+   */
+  public record Settings(int maxStatementsPerConnection, int prepareThreshold) {
+    public static final Settings DEFAULT = new Settings(64, 1);
+    public static final Settings DISABLED = new Settings(0, 5);
+
+    public boolean isEnabled() {
+      return maxStatementsPerConnection > 0;
+    }
+  }
+
+  /**
+   * Counters shared by all connections of a data source.
+   */
+  public static final class Metrics {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public long hits() {
+      return hits.sum();
+    }
+
+    public long misses() {
+      return misses.sum();
+    }
+
+    public long evictions() {
+      return evictions.sum();
+    }
+
+    public double hitRatio() {
+      var hits = hits();
+      var total = hits + misses();
+      return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+      return "StatementCache.Metrics[hits=%d, misses=%d, evictions=%d]"
+        .formatted(hits(), misses(), evictions());
+    }
+  }
+}
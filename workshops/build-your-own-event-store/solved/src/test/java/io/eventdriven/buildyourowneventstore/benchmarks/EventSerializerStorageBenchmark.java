@@ -0,0 +1,65 @@
+package io.eventdriven.buildyourowneventstore.benchmarks;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.EventSerializer;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.tools.PostgresTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static bankaccounts.BankAccount.Event.*;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares bytes stored per event by JSON (jsonb column) and Smile (bytea column) codecs.
+ * Serialisation cost is measured by the JMH `EventSerializerBenchmark`.
+ * Run with `./gradlew benchmark`.
+ */
+@Tag("Benchmark")
+public class EventSerializerStorageBenchmark extends PostgresTest {
+  private static final int streamsStored = 2_500;
+
+  @Test
+  public void smilePayloads_ShouldTakeLessSpaceOnDiskThanJson() {
+    var jsonBytes = storeAndMeasure(EventSerializer.JSON);
+    var smileBytes = storeAndMeasure(EventSerializer.SMILE);
+
+    System.out.printf("on disk per event | json: %5d B | smile: %5d B%n", jsonBytes, smileBytes);
+
+    assertTrue(smileBytes < jsonBytes);
+  }
+
+  private long storeAndMeasure(EventSerializer serializer) {
+    var eventStore = new PgEventStore(dbConnection, serializer);
+    eventStore.init();
+
+    for (var stored = 0; stored < streamsStored; stored++) {
+      var bankAccountId = UUID.randomUUID().toString();
+      var now = LocalDateTime.now();
+
+      eventStore.appendEvents(
+        BankAccount.class,
+        bankAccountId,
+        new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0),
+        new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1),
+        new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2),
+        new BankAccountClosed(bankAccountId, "Client request", now, 3)
+      );
+    }
+
+    return querySingleSql(
+      dbConnection,
+      """
+        SELECT round(avg(coalesce(pg_column_size(binary_data), pg_column_size(data))))::bigint AS size
+        FROM events
+        WHERE codec = ?
+        """,
+      setStringParam(serializer.codec()),
+      rs -> getLong(rs, "size")
+    );
+  }
+}
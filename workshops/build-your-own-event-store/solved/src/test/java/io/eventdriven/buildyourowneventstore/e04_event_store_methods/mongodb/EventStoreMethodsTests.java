@@ -8,7 +8,11 @@ import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.eve
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.subscriptions.BatchingPolicy;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.subscriptions.EventSubscriptionSettings;
 import io.eventdriven.buildyourowneventstore.tools.mongodb.MongoDBTest;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.event_as_document.MongoDBEventStoreWithEventAsDocument;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.event_as_document.MongoDBEventStoreWithEventAsDocument.AppendToStream;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.stream_as_document.MongoDBEventStoreWithStreamAsDocument;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -25,6 +29,7 @@ import java.util.stream.Stream;
 
 import static bankaccounts.BankAccount.Event.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class EventStoreMethodsTests extends MongoDBTest {
@@ -89,6 +94,190 @@ public class EventStoreMethodsTests extends MongoDBTest {
     }
   }
 
+  @ParameterizedTest
+  @MethodSource("eventStoreImplementations")
+  public void subscribe_ShouldResumeAfterLastHandledBatch_WhenRestarted(MongoDBEventStore.Storage storage) throws ExecutionException, InterruptedException, TimeoutException {
+    var eventStore = createEventStore(storage);
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var subscriptionId = UUID.randomUUID().toString();
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var cashierId = UUID.randomUUID().toString();
+
+    var firstBatch = new CompletableFuture<List<EventEnvelope>>();
+
+    try (var _ = eventStore.subscribe(
+      EventSubscriptionSettings.get()
+        .withSubscriptionId(subscriptionId)
+        .filterWithStreamType(BankAccount.class)
+        .handleBatch(firstBatch::complete, BatchingPolicy.ofSize(3))
+    )) {
+      eventStore.appendEvents(
+        streamName,
+        new DepositRecorded(bankAccountId, 100, cashierId, now, 1),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, 2),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, 3)
+      );
+
+      assertEquals(3, firstBatch.get(5, TimeUnit.SECONDS).size());
+    }
+
+    // appended while subscription is stopped
+    eventStore.appendEvents(
+      streamName,
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 4),
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 5),
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 6)
+    );
+
+    var resumedBatch = new CompletableFuture<List<EventEnvelope>>();
+
+    try (var _ = eventStore.subscribe(
+      EventSubscriptionSettings.get()
+        .withSubscriptionId(subscriptionId)
+        .filterWithStreamType(BankAccount.class)
+        .handleBatch(resumedBatch::complete, BatchingPolicy.ofSize(3))
+    )) {
+      var events = resumedBatch.get(5, TimeUnit.SECONDS);
+
+      assertEquals(List.of(4L, 5L, 6L), events.stream().map(event -> event.metadata().streamPosition()).toList());
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("eventStoreImplementations")
+  public void getEvents_ShouldReturnOnlyEventsWithinBounds(MongoDBEventStore.Storage storage) throws InterruptedException {
+    var eventStore = createEventStore(storage);
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var cashierId = UUID.randomUUID().toString();
+
+    eventStore.appendEvents(
+      streamName,
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 1),
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 2),
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 3)
+    );
+
+    Thread.sleep(10);
+    var afterFirstAppend = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    Thread.sleep(10);
+
+    eventStore.appendEvents(
+      streamName,
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 4),
+      new DepositRecorded(bankAccountId, 100, cashierId, now, 5)
+    );
+
+    var eventsAtVersion = eventStore.getEvents(streamName, 2L, null);
+    assertEquals(2, eventsAtVersion.size());
+    assertEquals(2, ((DepositRecorded) eventsAtVersion.getLast()).version());
+
+    var eventsAtTimestamp = eventStore.getEvents(streamName, null, afterFirstAppend);
+    assertEquals(3, eventsAtTimestamp.size());
+    assertEquals(3, ((DepositRecorded) eventsAtTimestamp.getLast()).version());
+
+    assertEquals(2, eventStore.getEvents(streamName, 2L, afterFirstAppend).size());
+    assertEquals(5, eventStore.getEvents(streamName).size());
+  }
+
+  @Test
+  public void readEvents_ShouldStreamEventsInOrder_AcrossCursorBatches() {
+    var eventStore = new MongoDBEventStoreWithEventAsDocument(mongoClient, getFreshDatabase().getName(), 2);
+    eventStore.init();
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var cashierId = UUID.randomUUID().toString();
+
+    for (var version = 0L; version < 9; version += 3) {
+      eventStore.appendEvents(
+        streamName,
+        version,
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 1),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 2),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 3)
+      );
+    }
+
+    try (var events = eventStore.readEvents(streamName, 7L, null)) {
+      var versions = events.map(event -> ((DepositRecorded) event).version()).toList();
+
+      assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), versions);
+    }
+  }
+
+  @Test
+  public void appendEvents_ShouldAppendNothingFromBatch_WhenAnyStreamHasConflict() {
+    var eventStore = new MongoDBEventStoreWithEventAsDocument(mongoClient, getFreshDatabase().getName());
+    eventStore.init();
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var cashierId = UUID.randomUUID().toString();
+
+    var firstAccountId = UUID.randomUUID().toString();
+    var firstStream = StreamName.of(BankAccount.class, firstAccountId);
+    var secondAccountId = UUID.randomUUID().toString();
+    var secondStream = StreamName.of(BankAccount.class, secondAccountId);
+
+    eventStore.appendEvents(List.of(
+      new AppendToStream(firstStream, 0L, List.of(new DepositRecorded(firstAccountId, 100, cashierId, now, 1))),
+      new AppendToStream(secondStream, null, List.of(new DepositRecorded(secondAccountId, 100, cashierId, now, 1)))
+    ));
+
+    assertThrows(
+      IllegalStateException.class,
+      () -> eventStore.appendEvents(List.of(
+        new AppendToStream(firstStream, 1L, List.of(new DepositRecorded(firstAccountId, 100, cashierId, now, 2))),
+        new AppendToStream(secondStream, 0L, List.of(new DepositRecorded(secondAccountId, 100, cashierId, now, 2)))
+      ))
+    );
+
+    assertEquals(1, eventStore.getEvents(firstStream).size());
+    assertEquals(1, eventStore.getEvents(secondStream).size());
+  }
+
+  @Test
+  public void getEvents_ShouldReturnEventsFromAllBuckets_WhenStreamDocumentRolledOver() {
+    var eventStore = new MongoDBEventStoreWithStreamAsDocument(
+      mongoClient,
+      getFreshDatabase().getName(),
+      new MongoDBEventStoreWithStreamAsDocument.BucketSettings(4, 1024 * 1024)
+    );
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var cashierId = UUID.randomUUID().toString();
+
+    for (var version = 0L; version < 9; version += 3) {
+      eventStore.appendEvents(
+        streamName,
+        version,
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 1),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 2),
+        new DepositRecorded(bankAccountId, 100, cashierId, now, version + 3)
+      );
+    }
+
+    // writer with stale version is rejected after rollover
+    assertThrows(
+      IllegalStateException.class,
+      () -> eventStore.appendEvents(streamName, 3L, new DepositRecorded(bankAccountId, 100, cashierId, now, 4))
+    );
+
+    var events = eventStore.getEvents(streamName);
+    assertEquals(9, events.size());
+    assertEquals(9, ((DepositRecorded) events.getLast()).version());
+
+    var eventsAtVersion = eventStore.getEvents(streamName, 5L, null);
+    assertEquals(5, eventsAtVersion.size());
+    assertEquals(5, ((DepositRecorded) eventsAtVersion.getLast()).version());
+  }
+
   private <Event> Event findFirstOfType(Class<Event> type, List<Object> events) {
     return events.stream()
       .filter(type::isInstance)
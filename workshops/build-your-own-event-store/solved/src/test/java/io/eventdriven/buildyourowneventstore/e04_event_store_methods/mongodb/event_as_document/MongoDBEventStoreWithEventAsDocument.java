@@ -1,5 +1,11 @@
 package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.event_as_document;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -21,19 +27,40 @@ import org.bson.conversions.Bson;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
   private final MongoClient mongoClient;
   private final MongoDatabase database;
   private final EventDataCodec eventDataCodec;
   private final EventTypeMapper eventTypeMapper;
+  private final int readBatchSize;
+
+  public static final int DEFAULT_READ_BATCH_SIZE = 1_000;
 
   public MongoDBEventStoreWithEventAsDocument(MongoClient mongoClient, String databaseName) {
+    this(mongoClient, databaseName, DEFAULT_READ_BATCH_SIZE);
+  }
+
+  /**
+   * @param readBatchSize number of events fetched from the server at once when reading a stream
+   */
+  public MongoDBEventStoreWithEventAsDocument(MongoClient mongoClient, String databaseName, int readBatchSize) {
+    if (readBatchSize < 1) {
+      throw new IllegalArgumentException("Read batch size must be positive");
+    }
     this.mongoClient = mongoClient;
+    this.readBatchSize = readBatchSize;
     this.mongoClient.getDatabase(databaseName).drop();
     database = this.mongoClient.getDatabase(databaseName);
     eventTypeMapper = EventTypeMapper.DEFAULT;
@@ -58,11 +85,25 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
       );
   }
 
+  /**
+   * Events to append to a single stream, as part of {@link #appendEvents(List)}.
+   */
+  public record AppendToStream(StreamName streamName, Long expectedVersion, List<Object> events) {
+  }
+
   @Override
   public void appendEvents(StreamName streamName, Long expectedVersion, Object... events) {
-    var streamType = streamName.streamType();
-    var streamId = streamName.streamId();
-    var streamNameValue = streamName.toString();
+    appendEvents(List.of(new AppendToStream(streamName, expectedVersion, List.of(events))));
+  }
+
+  /**
+   * Appends events to many streams in a single transaction. Stream positions are updated with one ordered
+   * bulk write and events of all streams are inserted with another one, so the number of round trips
+   * doesn't grow with the number of streams. If any expected version doesn't match, nothing is appended.
+   */
+  public void appendEvents(List<AppendToStream> appends) {
+    if (appends.stream().map(AppendToStream::streamName).distinct().count() != appends.size())
+      throw new IllegalArgumentException("Each stream can be appended only once in a batch");
 
     // Resolve collections
     var streamsCollection = streamsCollection();
@@ -70,90 +111,162 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
 
     var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
 
-    mongoClient.startSession().withTransaction(() -> {
-      long currentVersion;
-      if (expectedVersion != null) {
-        currentVersion = expectedVersion;
-      } else {
-        var stream = streamsCollection.find(Filters.eq("streamName", streamNameValue))
-          .projection(Projections.include("metadata.streamPosition"))
-          .first();
-
-        currentVersion = stream != null ?
-          stream.metadata().streamPosition()
-          : 0L;
+    inTransaction(session -> {
+      var currentVersions = currentVersions(session, appends);
+
+      var streamUpdates = new ArrayList<WriteModel<EventStream>>(appends.size());
+      var eventInserts = new ArrayList<WriteModel<EventEnvelope>>();
+
+      for (var append : appends) {
+        var streamName = append.streamName();
+        var streamNameValue = streamName.toString();
+        var events = append.events();
+        long currentVersion = currentVersions.getOrDefault(streamNameValue, 0L);
+
+        IntStream.range(0, events.size())
+          .mapToObj(index -> {
+            var event = events.get(index);
+
+            return EventEnvelope.of(
+              event,
+              new EventMetadata(
+                UUID.randomUUID().toString(),
+                eventTypeMapper.toName(event.getClass()),
+                currentVersion + index + 1,
+                streamNameValue,
+                now
+              ),
+              eventDataCodec
+            );
+          })
+          .map(InsertOneModel::new)
+          .forEach(eventInserts::add);
+
+        // Append events upserting the document
+        streamUpdates.add(new UpdateOneModel<>(
+          Filters.and(
+            Filters.eq("streamName", streamNameValue),
+            Filters.eq("metadata.streamPosition", currentVersion)
+          ),
+          Updates.combine(
+            // Increment stream position
+            Updates.inc("metadata.streamPosition", events.size()),
+            // Set default metadata on insert
+            Updates.setOnInsert("streamName", streamNameValue),
+            Updates.setOnInsert("metadata.streamId", streamName.streamId()),
+            Updates.setOnInsert("metadata.streamType", streamName.streamType()),
+            Updates.setOnInsert("metadata.createdAt", now),
+            // Update metadata
+            Updates.set("metadata.updatedAt", now)
+          ),
+          upsert
+        ));
       }
 
-      var envelopes = IntStream.range(0, events.length)
-        .mapToObj(index -> {
-          var event = events[index];
-
-          return EventEnvelope.of(
-            event,
-            new EventMetadata(
-              UUID.randomUUID().toString(),
-              eventTypeMapper.toName(event.getClass()),
-              currentVersion + index + 1,
-              streamNameValue
-            ),
-            eventDataCodec
-          );
-        }).toList();
-
-      // Append events upserting the document
-      var streamUpdateResult = streamsCollection.updateOne(
-        Filters.and(
-          Filters.eq("streamName", streamNameValue),
-          Filters.eq("metadata.streamPosition", currentVersion)
-        ),
-        Updates.combine(
-          // Append events
-          // Increment stream position
-          Updates.inc("metadata.streamPosition", events.length),
-          // Set default metadata on insert
-          Updates.setOnInsert("streamName", streamNameValue),
-          Updates.setOnInsert("metadata.streamId", streamId),
-          Updates.setOnInsert("metadata.streamType", streamType),
-          Updates.setOnInsert("metadata.createdAt", now),
-          // Update metadata
-          Updates.set("metadata.updatedAt", now)
-        ),
-        upsert
-      );
+      try {
+        var streamUpdateResult = streamsCollection.bulkWrite(session, streamUpdates, ordered);
 
-      if (streamUpdateResult.getModifiedCount() == 0L && streamUpdateResult.getUpsertedId() == null)
-        throw new IllegalStateException("Expected version did not match the stream version!");
+        if (streamUpdateResult.getMatchedCount() + streamUpdateResult.getUpserts().size() != appends.size())
+          throw new IllegalStateException("Expected version did not match the stream version!");
 
-      var eventAppendResult = eventsCollection.insertMany(
-        envelopes
-      );
+        var eventAppendResult = eventsCollection.bulkWrite(session, eventInserts, ordered);
 
-      if (eventAppendResult.getInsertedIds().size() != envelopes.size())
-        throw new IllegalStateException("Expected version did not match the stream version!");
+        if (eventAppendResult.getInsertedCount() != eventInserts.size())
+          throw new IllegalStateException("Expected version did not match the stream version!");
+      } catch (MongoBulkWriteException e) {
+        // upsert of existing stream with different position or event at already taken position
+        if (e.getWriteErrors().stream().anyMatch(error -> error.getCategory() == ErrorCategory.DUPLICATE_KEY))
+          throw new IllegalStateException("Expected version did not match the stream version!", e);
+
+        throw e;
+      }
 
       return true;
     });
   }
 
+  // Expected versions if provided, otherwise current ones, read in a single query
+  private Map<String, Long> currentVersions(ClientSession session, List<AppendToStream> appends) {
+    var currentVersions = new HashMap<String, Long>();
+    var streamsToRead = new ArrayList<String>();
+
+    for (var append : appends) {
+      if (append.expectedVersion() != null)
+        currentVersions.put(append.streamName().toString(), append.expectedVersion());
+      else
+        streamsToRead.add(append.streamName().toString());
+    }
+
+    if (streamsToRead.isEmpty())
+      return currentVersions;
+
+    streamsCollection().find(session, Filters.in("streamName", streamsToRead))
+      .projection(Projections.include("streamName", "metadata.streamPosition"))
+      .forEach(stream -> currentVersions.put(stream.streamName(), stream.metadata().streamPosition()));
+
+    return currentVersions;
+  }
+
+  /**
+   * Runs body in a transaction and closes the session afterwards, returning it to the driver's pool.
+   * Driver retries the body on transient transaction errors and the commit on unknown commit result,
+   * so the body has to be safe to run again.
+   */
+  private <T> T inTransaction(Function<ClientSession, T> body) {
+    try (var session = mongoClient.startSession()) {
+      return session.withTransaction(() -> body.apply(session), transactionOptions);
+    }
+  }
+
   @Override
   public List<Object> getEvents(StreamName streamName, Long atStreamVersion, LocalDateTime atTimestamp) {
+    try (var events = readEvents(streamName, atStreamVersion, atTimestamp)) {
+      return events.toList();
+    }
+  }
+
+  /**
+   * Reads stream events in order, decoding them as they're consumed.
+   * Only one batch of events is kept in memory, so it can be used to rehydrate long streams.
+   * Returned stream holds an open cursor, it has to be closed.
+   */
+  public Stream<Object> readEvents(StreamName streamName, Long atStreamVersion, LocalDateTime atTimestamp) {
     var eventsCollection = eventsCollection();
 
-    return eventsCollection
-      .find(Filters.eq("metadata.streamName", streamName.toString()))
-      .into(new ArrayList<>())
-      .stream()
-      .map(eventEnvelope -> eventEnvelope.getEvent(eventDataCodec))
-      .toList();
+    var filters = new ArrayList<Bson>();
+    filters.add(Filters.eq("metadata.streamName", streamName.toString()));
+
+    // Range on the (streamName, streamPosition) index, so later events are not even read
+    if (atStreamVersion != null)
+      filters.add(Filters.lte("metadata.streamPosition", atStreamVersion));
+
+    if (atTimestamp != null)
+      filters.add(Filters.lte("metadata.recordedAt", atTimestamp));
+
+    // Sort is served by the same index, so it doesn't buffer results on the server
+    var cursor = eventsCollection
+      .find(Filters.and(filters))
+      .sort(Sorts.ascending("metadata.streamPosition"))
+      .batchSize(readBatchSize)
+      .map(eventEnvelope -> eventEnvelope.<Object>getEvent(eventDataCodec))
+      .cursor();
+
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL),
+        false
+      )
+      .onClose(cursor::close);
   }
 
   public EventSubscription subscribe(EventSubscriptionSettings settings) {
     var subscription = new EventSubscription(
-      () -> MongoEventStreamCursor.from(
+      resumeToken -> MongoEventStreamCursor.from(
         eventsCollection(),
         filterSubscription(settings.streamType()),
-        MongoDBEventStoreWithEventAsDocument::extractEvents
+        MongoDBEventStoreWithEventAsDocument::extractEvents,
+        resumeToken
       ),
+      database,
       settings
     );
 
@@ -198,4 +311,9 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
   }
 
   private final static UpdateOptions upsert = new UpdateOptions().upsert(true);
+  private final static BulkWriteOptions ordered = new BulkWriteOptions().ordered(true);
+  private final static TransactionOptions transactionOptions = TransactionOptions.builder()
+    .readPreference(ReadPreference.primary())
+    .writeConcern(WriteConcern.MAJORITY)
+    .build();
 }
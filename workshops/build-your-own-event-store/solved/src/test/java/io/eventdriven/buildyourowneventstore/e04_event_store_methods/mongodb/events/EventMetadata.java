@@ -1,9 +1,12 @@
 package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events;
 
+import java.time.LocalDateTime;
+
 public record EventMetadata(
   String eventId,
   String eventType,
   long streamPosition,
-  String streamName
+  String streamName,
+  LocalDateTime recordedAt
 ) {
 }
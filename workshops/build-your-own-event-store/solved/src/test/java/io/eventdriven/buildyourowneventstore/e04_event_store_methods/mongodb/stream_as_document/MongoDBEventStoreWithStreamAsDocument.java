@@ -1,5 +1,7 @@
 package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.stream_as_document;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
@@ -13,30 +15,66 @@ import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.eve
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events.EventMetadata;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events.EventTypeMapper;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.stream_as_document.streams.EventStream;
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.stream_as_document.streams.StreamMetadata;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.subscriptions.*;
 import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
 import org.bson.conversions.Bson;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
+/**
+ * Keeps each stream as a chain of bucket documents in the collection of its stream type.
+ * Bucket holds up to {@link BucketSettings#maxEvents()} events or {@link BucketSettings#maxBytes()} of them,
+ * so appends update a bounded document instead of rewriting an ever-growing one and long streams don't hit
+ * the 16 MB BSON document limit.
+ * <p>
+ * Only the last bucket is open for appends. When it's full, it's sealed with the same
+ * `metadata.streamPosition` check as regular appends and the next bucket is inserted. Unique index
+ * on (streamName, bucket) ensures that only one writer can start it.
+ */
 public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore {
   private final MongoClient mongoClient;
   private final MongoDatabase database;
   private final EventDataCodec eventDataCodec;
   private final Codec<EventEnvelope> eventEnvelopeCodec;
   private final EventTypeMapper eventTypeMapper;
-
+  private final BucketSettings bucketSettings;
+  private final Map<String, MongoCollection<EventStream>> collections = new ConcurrentHashMap<>();
+
+  /**
+   * @param maxEvents number of events after which bucket is sealed
+   * @param maxBytes  size of encoded events after which bucket is sealed,
+   *                  single append can exceed it, as it's always stored in one bucket
+   */
+  public record BucketSettings(int maxEvents, int maxBytes) {
+    public static final BucketSettings DEFAULT = new BucketSettings(1_000, 1024 * 1024);
+  }
 
   public MongoDBEventStoreWithStreamAsDocument(MongoClient mongoClient, String databaseName) {
+    this(mongoClient, databaseName, BucketSettings.DEFAULT);
+  }
+
+  public MongoDBEventStoreWithStreamAsDocument(
+    MongoClient mongoClient,
+    String databaseName,
+    BucketSettings bucketSettings
+  ) {
+    if (bucketSettings.maxEvents() < 1 || bucketSettings.maxBytes() < 1) {
+      throw new IllegalArgumentException("Bucket limits must be positive");
+    }
     this.mongoClient = mongoClient;
+    this.bucketSettings = bucketSettings;
     database = this.mongoClient.getDatabase(databaseName);
     eventTypeMapper = EventTypeMapper.DEFAULT;
 
@@ -56,7 +94,6 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
   @Override
   public void appendEvents(StreamName streamName, Long expectedVersion, Object... events) {
     var streamType = streamName.streamType();
-    var streamId = streamName.streamId();
     var streamNameValue = streamName.toString();
 
     // Resolve collection
@@ -64,17 +101,19 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
 
     var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
 
+    // Only the last bucket can be appended, its metadata is enough to check the stream position
+    var lastBucket = collection.find(Filters.eq("streamName", streamNameValue))
+      .sort(Sorts.descending("bucket"))
+      .projection(Projections.exclude("events"))
+      .first();
+
     long currentVersion;
 
     if (expectedVersion != null) {
       currentVersion = expectedVersion;
     } else {
-      var stream = collection.find(Filters.eq("streamName", streamNameValue))
-        .projection(Projections.include("metadata.streamPosition"))
-        .first();
-
-      currentVersion = stream != null ?
-        stream.metadata().streamPosition()
+      currentVersion = lastBucket != null ?
+        lastBucket.metadata().streamPosition()
         : 0L;
     }
 
@@ -88,64 +127,206 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
             UUID.randomUUID().toString(),
             eventTypeMapper.toName(event.getClass()),
             currentVersion + index + 1,
-            streamNameValue
+            streamNameValue,
+            now
           ),
           eventDataCodec
         );
       }).toList();
 
-    // Append events upserting the document
+    var size = envelopes.stream().mapToLong(this::encodedSize).sum();
+
+    boolean appended;
+
+    if (lastBucket == null) {
+      appended = currentVersion == 0 &&
+        startBucket(collection, streamName, 0, currentVersion, envelopes, size, now);
+    } else if (!lastBucket.metadata().sealed() && hasRoomFor(lastBucket.metadata(), envelopes.size(), size)) {
+      appended = appendToBucket(collection, lastBucket, currentVersion, envelopes, size, now);
+    } else {
+      appended = sealBucket(collection, lastBucket, currentVersion, now) &&
+        startBucket(collection, streamName, lastBucket.bucket() + 1, currentVersion, envelopes, size, now);
+    }
+
+    if (!appended)
+      throw new IllegalStateException("Expected version did not match the stream version!");
+  }
+
+  @Override
+  public List<Object> getEvents(StreamName streamName, Long atStreamVersion, LocalDateTime atTimestamp) {
+    var streamType = streamName.streamType();
+
+    // Resolve collection
+    var collection = collectionFor(streamType);
+
+    // Buckets starting after the requested bounds are not needed
+    var bucketFilters = new ArrayList<Bson>();
+    bucketFilters.add(Filters.eq("streamName", streamName.toString()));
+
+    if (atStreamVersion != null)
+      bucketFilters.add(Filters.lte("metadata.firstStreamPosition", atStreamVersion));
+
+    if (atTimestamp != null)
+      bucketFilters.add(Filters.lte("metadata.createdAt", atTimestamp));
+
+    // Events are trimmed on the server, so only the requested ones are sent back
+    var buckets = collection.aggregate(List.of(
+      Aggregates.match(Filters.and(bucketFilters)),
+      Aggregates.sort(Sorts.ascending("bucket")),
+      Aggregates.project(
+        Projections.fields(
+          Projections.excludeId(),
+          Projections.computed("events", boundedEvents(atStreamVersion, atTimestamp))
+        )
+      )
+    ));
+
+    var events = new ArrayList<Object>();
+
+    for (var bucket : buckets) {
+      for (var eventEnvelope : bucket.events()) {
+        events.add(eventEnvelope.getEvent(eventDataCodec));
+      }
+    }
+
+    return events;
+  }
+
+  // Events in bucket are ordered by position, so version bound is a slice from its beginning.
+  // Timestamps come from the appending clients, so they're filtered one by one.
+  private static Object boundedEvents(Long atStreamVersion, LocalDateTime atTimestamp) {
+    Object events = "$events";
+
+    if (atStreamVersion != null)
+      events = new Document("$slice", List.of(
+        events,
+        new Document("$subtract", List.of(atStreamVersion + 1, "$metadata.firstStreamPosition"))
+      ));
+
+    if (atTimestamp != null)
+      events = new Document("$filter", new Document()
+        .append("input", events)
+        .append("as", "event")
+        .append("cond", new Document("$lte", List.of("$$event.metadata.recordedAt", atTimestamp)))
+      );
+
+    return events;
+  }
+
+  private boolean hasRoomFor(StreamMetadata bucket, int eventsCount, long size) {
+    var bucketEventsCount = bucket.streamPosition() - bucket.firstStreamPosition() + 1;
+
+    return bucketEventsCount + eventsCount <= bucketSettings.maxEvents()
+      && bucket.size() + size <= bucketSettings.maxBytes();
+  }
+
+  private boolean appendToBucket(
+    MongoCollection<EventStream> collection,
+    EventStream bucket,
+    long currentVersion,
+    List<EventEnvelope> envelopes,
+    long size,
+    LocalDateTime now
+  ) {
     var result = collection.updateOne(
       Filters.and(
-        Filters.eq("streamName", streamNameValue),
-        Filters.eq("metadata.streamPosition", currentVersion)
+        Filters.eq("streamName", bucket.streamName()),
+        Filters.eq("bucket", bucket.bucket()),
+        Filters.eq("metadata.streamPosition", currentVersion),
+        Filters.eq("metadata.sealed", false)
       ),
       Updates.combine(
         // Append events
         Updates.pushEach("events", envelopes),
         // Increment stream position
-        Updates.inc("metadata.streamPosition", events.length),
-        // Set default metadata on insert
-        Updates.setOnInsert("streamName", streamNameValue),
-        Updates.setOnInsert("metadata.streamId", streamId),
-        Updates.setOnInsert("metadata.streamType", streamType),
-        Updates.setOnInsert("metadata.createdAt", now),
+        Updates.inc("metadata.streamPosition", envelopes.size()),
+        Updates.inc("metadata.size", size),
         // Update metadata
         Updates.set("metadata.updatedAt", now)
-      ),
-      upsert
+      )
     );
 
-    if (result.getModifiedCount() == 0L && result.getUpsertedId() == null)
-      throw new IllegalStateException("Expected version did not match the stream version!");
+    return result.getModifiedCount() == 1L;
   }
 
-  @Override
-  public List<Object> getEvents(StreamName streamName, Long atStreamVersion, LocalDateTime atTimestamp) {
-    var streamType = streamName.streamType();
+  // Closes bucket for appends, guarded by the stream position as a regular append.
+  // Bucket can be already sealed if the writer that sealed it failed before starting the next one.
+  private boolean sealBucket(
+    MongoCollection<EventStream> collection,
+    EventStream bucket,
+    long currentVersion,
+    LocalDateTime now
+  ) {
+    if (bucket.metadata().sealed())
+      return bucket.metadata().streamPosition() == currentVersion;
 
-    // Resolve collection
-    var collection = collectionFor(streamType);
+    var result = collection.updateOne(
+      Filters.and(
+        Filters.eq("streamName", bucket.streamName()),
+        Filters.eq("bucket", bucket.bucket()),
+        Filters.eq("metadata.streamPosition", currentVersion),
+        Filters.eq("metadata.sealed", false)
+      ),
+      Updates.combine(
+        Updates.set("metadata.sealed", true),
+        Updates.set("metadata.updatedAt", now)
+      )
+    );
 
-    // Read events from the stream document
-    var stream = collection.find(Filters.eq("streamName", streamName.toString()))
-      .projection(Projections.include("events"))
-      .first();
+    return result.getModifiedCount() == 1L;
+  }
 
-    return stream != null ?
-      stream.events().stream().map(eventEnvelope ->
-        eventEnvelope.getEvent(eventDataCodec)
-      ).toList()
-      : Collections.emptyList();
+  private boolean startBucket(
+    MongoCollection<EventStream> collection,
+    StreamName streamName,
+    long bucket,
+    long currentVersion,
+    List<EventEnvelope> envelopes,
+    long size,
+    LocalDateTime now
+  ) {
+    try {
+      collection.insertOne(
+        new EventStream(
+          null,
+          streamName.toString(),
+          bucket,
+          envelopes,
+          new StreamMetadata(
+            streamName.streamId(),
+            streamName.streamType(),
+            currentVersion + envelopes.size(),
+            currentVersion + 1,
+            size,
+            false,
+            now,
+            now
+          )
+        )
+      );
+      return true;
+    } catch (MongoWriteException e) {
+      // other writer already started this bucket
+      if (e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY)
+        return false;
+
+      throw e;
+    }
+  }
+
+  private long encodedSize(EventEnvelope envelope) {
+    return new RawBsonDocument(envelope, eventEnvelopeCodec).getByteBuffer().remaining();
   }
 
   public EventSubscription subscribe(EventSubscriptionSettings settings) {
     var subscription = new EventSubscription(
-      () -> MongoEventStreamCursor.from(
+      resumeToken -> MongoEventStreamCursor.from(
         collectionFor(settings.streamType()),
         filterSubscription(),
-        this::extractEvents
+        this::extractEvents,
+        resumeToken
       ),
+      database,
       settings
     );
 
@@ -209,8 +390,16 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
   }
 
   private MongoCollection<EventStream> collectionFor(String streamType) {
-    return database.getCollection(streamType, EventStream.class);
-  }
+    return collections.computeIfAbsent(streamType, type -> {
+      var collection = database.getCollection(type, EventStream.class);
 
-  private final static UpdateOptions upsert = new UpdateOptions().upsert(true);
+      // Serves the last bucket lookup and guards that each bucket is started once
+      collection.createIndex(
+        Indexes.compoundIndex(Indexes.ascending("streamName"), Indexes.descending("bucket")),
+        new IndexOptions().unique(true)
+      );
+
+      return collection;
+    });
+  }
 }
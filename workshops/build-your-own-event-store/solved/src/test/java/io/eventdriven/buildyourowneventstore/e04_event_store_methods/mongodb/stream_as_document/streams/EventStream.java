@@ -5,12 +5,15 @@ import org.bson.types.ObjectId;
 
 import java.util.List;
 
+/**
+ * Bucket of stream events, stream is a chain of them numbered from 0.
+ */
 public record EventStream(
   ObjectId id,
   String streamName,
+  Long bucket,
   List<EventEnvelope> events,
   StreamMetadata metadata
 ) {
 }
 
-
@@ -2,10 +2,19 @@ package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.st
 
 import java.time.LocalDateTime;
 
+/**
+ * @param streamPosition      position of the last event in the bucket, so of the stream for its last bucket
+ * @param firstStreamPosition position of the first event in the bucket
+ * @param size                size of encoded events in the bucket, in bytes
+ * @param sealed              true when the next bucket was started and this one no longer takes appends
+ */
 public record StreamMetadata(
   String streamId,
   String streamType,
   Long streamPosition,
+  Long firstStreamPosition,
+  Long size,
+  Boolean sealed,
   LocalDateTime createdAt,
   LocalDateTime updatedAt
 ) {
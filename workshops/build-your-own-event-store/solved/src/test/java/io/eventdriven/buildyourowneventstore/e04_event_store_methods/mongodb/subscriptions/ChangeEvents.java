@@ -0,0 +1,12 @@
+package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.subscriptions;
+
+import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events.EventEnvelope;
+import org.bson.BsonDocument;
+
+import java.util.List;
+
+/**
+ * Events extracted from a single change stream notification with the token to resume after it.
+ */
+public record ChangeEvents(List<EventEnvelope> events, BsonDocument resumeToken) {
+}
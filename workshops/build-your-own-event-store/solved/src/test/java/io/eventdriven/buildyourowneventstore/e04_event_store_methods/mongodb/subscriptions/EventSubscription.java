@@ -1,46 +1,73 @@
 package io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.subscriptions;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events.EventEnvelope;
+import org.bson.BsonDocument;
+import org.bson.Document;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Supplier;
+import java.util.function.Function;
 
+/**
+ * Reads the change stream and passes events to the handler in batches, both on virtual threads.
+ * Notifications are buffered in a bounded queue, so a slow handler throttles reading the change stream.
+ * <p>
+ * With subscription id set, resume token of the last handled notification is stored in the
+ * `subscription_checkpoints` collection after each batch, and the subscription resumes after it
+ * when started again. Delivery is at-least-once: events buffered or handled before the failure
+ * and not yet checkpointed are delivered again.
+ * <p>
+ * Change stream waits for notifications on a pooled connection, so each running subscription
+ * takes one from the client's connection pool.
+ */
 public class EventSubscription implements AutoCloseable {
-  private final BlockingQueue<EventEnvelope> queue;
+  private static final Duration joinTimeout = Duration.ofSeconds(5);
+
+  private final BlockingQueue<ChangeEvents> queue;
   private final AtomicBoolean running = new AtomicBoolean(true);
   private final EventSubscriptionSettings settings;
-  private final Supplier<WatchCursor<List<EventEnvelope>>> listen;
-  private final ExecutorService executor;
+  private final Function<BsonDocument, WatchCursor<ChangeEvents>> listen;
+  private final MongoCollection<Document> checkpoints;
+  private Thread listener;
+  private Thread consumer;
 
+  /**
+   * @param listen opens the change stream, resuming after the given token or from now if it's null
+   */
   public EventSubscription(
-    Supplier<WatchCursor<List<EventEnvelope>>> listen,
+    Function<BsonDocument, WatchCursor<ChangeEvents>> listen,
+    MongoDatabase database,
     EventSubscriptionSettings settings
   ) {
     if (settings.handler() == null) {
       throw new IllegalArgumentException("At least one handler must be provided");
     }
-    this.queue = new LinkedBlockingQueue<>();
+    this.queue = new ArrayBlockingQueue<>(settings.bufferSize());
     this.settings = settings;
     this.listen = listen;
-    this.executor = Executors.newFixedThreadPool(2);
+    this.checkpoints = database.getCollection("subscription_checkpoints");
   }
 
   public void start() {
-    executor.submit(this::listen);
-    executor.submit(this::consume);
+    var resumeToken = loadCheckpoint();
+
+    listener = Thread.ofVirtual().name("mongodb-subscription-listener").start(() -> listen(resumeToken));
+    consumer = Thread.ofVirtual().name("mongodb-subscription-consumer").start(this::consume);
   }
 
-  private void listen() {
-    try (var cursor = listen.get()) {
+  private void listen(BsonDocument resumeToken) {
+    try (var cursor = listen.apply(resumeToken)) {
       while (running.get() && cursor.hasNext()) {
-        var events = cursor.next();
-        for (var event : events) {
-          if (!running.get()) break;
-          queue.put(event);
-        }
+        // blocks when buffer is full, so notifications are not read faster than they're handled
+        queue.put(cursor.next());
       }
     } catch (InterruptedException ie) {
       Thread.currentThread().interrupt();
@@ -53,39 +80,86 @@ public class EventSubscription implements AutoCloseable {
 
   private void consume() {
     var policy = settings.policy();
-    var handler = settings.handler();
-    List<EventEnvelope> batch = new ArrayList<>(policy.batchSize());
+    var changes = new ArrayList<ChangeEvents>();
+    var eventsCount = 0;
 
     try {
       while (running.get()) {
-        var event = queue.poll(policy.maxWait().toMillis(), TimeUnit.MILLISECONDS);
-        if (event != null) {
-          batch.add(event);
-          queue.drainTo(batch, policy.batchSize() - batch.size());
+        var change = queue.poll(policy.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+        var timedOut = change == null;
+
+        // notifications are not split between batches, so their resume tokens can be checkpointed
+        while (change != null) {
+          changes.add(change);
+          eventsCount += change.events().size();
+
+          change = eventsCount < policy.batchSize() ? queue.poll() : null;
         }
 
-        if (!batch.isEmpty() && (batch.size() >= policy.batchSize() || event == null)) {
-          handler.accept(new ArrayList<>(batch));
-          batch.clear();
+        if (!changes.isEmpty() && (eventsCount >= policy.batchSize() || timedOut)) {
+          handle(changes);
+          changes.clear();
+          eventsCount = 0;
         }
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
     } finally {
       // Process remaining batch if any
-      if (!batch.isEmpty()) {
-        handler.accept(batch);
+      if (!changes.isEmpty()) {
+        handle(changes);
       }
     }
   }
 
+  private void handle(List<ChangeEvents> changes) {
+    var batch = new ArrayList<EventEnvelope>();
+    for (var change : changes) {
+      batch.addAll(change.events());
+    }
+
+    // notifications without events, e.g. sealing stream bucket, only move the checkpoint
+    if (!batch.isEmpty())
+      settings.handler().accept(batch);
+
+    storeCheckpoint(changes.getLast().resumeToken());
+  }
+
+  private BsonDocument loadCheckpoint() {
+    if (settings.subscriptionId() == null)
+      return null;
+
+    var checkpoint = checkpoints.find(Filters.eq("_id", settings.subscriptionId())).first();
+
+    return checkpoint != null ?
+      checkpoint.get("resumeToken", Document.class).toBsonDocument()
+      : null;
+  }
+
+  private void storeCheckpoint(BsonDocument resumeToken) {
+    if (settings.subscriptionId() == null)
+      return;
+
+    checkpoints.replaceOne(
+      Filters.eq("_id", settings.subscriptionId()),
+      new Document("_id", settings.subscriptionId())
+        .append("resumeToken", resumeToken)
+        .append("updatedAt", LocalDateTime.now()),
+      new ReplaceOptions().upsert(true)
+    );
+  }
+
   @Override
   public void close() {
-    running.set(false);
-    executor.shutdownNow(); // Interrupt any blocking operations
+    if (!running.compareAndSet(true, false))
+      return;
+
+    // Interrupt waiting for notifications, consumer stops after its poll times out
+    // and handles the remaining batch, so its checkpoint is not interrupted
+    listener.interrupt();
     try {
-      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-        System.err.println("Executor did not terminate in time");
+      if (!listener.join(joinTimeout) || !consumer.join(joinTimeout)) {
+        System.err.println("Subscription did not terminate in time");
       }
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
@@ -7,9 +7,11 @@ import java.util.List;
 import java.util.function.Consumer;
 
 public class EventSubscriptionSettings {
+  private String subscriptionId;
   private String streamType;
   private Consumer<List<EventEnvelope>> handler;
   private BatchingPolicy policy = BatchingPolicy.DEFAULT;
+  private int bufferSize = 1000;
 
   private EventSubscriptionSettings() {
   }
@@ -18,6 +20,29 @@ public class EventSubscriptionSettings {
     return new EventSubscriptionSettings();
   }
 
+  /**
+   * Stores change stream resume token under the given id after each handled batch
+   * and resumes after it when subscription is started again.
+   */
+  public EventSubscriptionSettings withSubscriptionId(String subscriptionId) {
+    this.subscriptionId = subscriptionId;
+
+    return this;
+  }
+
+  /**
+   * Maximum number of change stream notifications waiting for the handler.
+   * When it's reached, reading the change stream waits until the handler catches up.
+   */
+  public EventSubscriptionSettings withBufferSize(int bufferSize) {
+    if (bufferSize < 1)
+      throw new IllegalArgumentException("Buffer size must be positive");
+
+    this.bufferSize = bufferSize;
+
+    return this;
+  }
+
   public <T> EventSubscriptionSettings filterWithStreamType(Class<T> streamClass) {
     return filterWithStreamType(StreamType.of(streamClass));
   }
@@ -47,6 +72,10 @@ public class EventSubscriptionSettings {
     return this;
   }
 
+  public String subscriptionId() {
+    return subscriptionId;
+  }
+
   public String streamType() {
     return streamType;
   }
@@ -58,4 +87,8 @@ public class EventSubscriptionSettings {
   public BatchingPolicy policy() {
     return policy;
   }
+
+  public int bufferSize() {
+    return bufferSize;
+  }
 }
@@ -5,12 +5,13 @@ import com.mongodb.client.MongoChangeStreamCursor;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import io.eventdriven.buildyourowneventstore.e04_event_store_methods.mongodb.events.EventEnvelope;
+import org.bson.BsonDocument;
 import org.bson.conversions.Bson;
 
 import java.util.List;
 import java.util.function.Function;
 
-public class MongoEventStreamCursor<TDocument> implements WatchCursor<List<EventEnvelope>> {
+public class MongoEventStreamCursor<TDocument> implements WatchCursor<ChangeEvents> {
   private final MongoChangeStreamCursor<ChangeStreamDocument<TDocument>> changeStreamCursor;
   private final Function<ChangeStreamDocument<TDocument>, List<EventEnvelope>>  extractEvents;
 
@@ -28,8 +29,10 @@ public class MongoEventStreamCursor<TDocument> implements WatchCursor<List<Event
   }
 
   @Override
-  public List<EventEnvelope> next() {
-    return extractEvents.apply(changeStreamCursor.next());
+  public ChangeEvents next() {
+    var change = changeStreamCursor.next();
+
+    return new ChangeEvents(extractEvents.apply(change), change.getResumeToken());
   }
 
   @Override
@@ -40,9 +43,14 @@ public class MongoEventStreamCursor<TDocument> implements WatchCursor<List<Event
   public static <TDocument> MongoEventStreamCursor<TDocument> from(
     MongoCollection<TDocument> streamsCollection,
     List<? extends Bson> filter,
-    Function<ChangeStreamDocument<TDocument>, List<EventEnvelope>> extractEvents
+    Function<ChangeStreamDocument<TDocument>, List<EventEnvelope>> extractEvents,
+    BsonDocument resumeAfter
   ){
     var watch = streamsCollection.watch(filter);
+
+    if (resumeAfter != null)
+      watch = watch.resumeAfter(resumeAfter);
+
     return new MongoEventStreamCursor<>(watch, extractEvents);
   }
 }
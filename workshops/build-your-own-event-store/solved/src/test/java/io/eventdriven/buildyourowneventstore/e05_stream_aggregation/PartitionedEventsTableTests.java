@@ -0,0 +1,163 @@
+package io.eventdriven.buildyourowneventstore.e05_stream_aggregation;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.EventSerializer;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.SnapshotPolicy;
+import io.eventdriven.buildyourowneventstore.tools.PostgresTest;
+import io.eventdriven.buildyourowneventstore.tools.SingleConnectionDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static bankaccounts.BankAccount.Event.*;
+import static bankaccounts.BankAccountService.getBankAccount;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedEventsTableTests extends PostgresTest {
+  private static final int partitions = 4;
+
+  @BeforeEach
+  public void dropEventsTable() {
+    // each test starts without the event store tables, as partitioning is decided when they're created
+    executeSql(dbConnection, "DROP TABLE IF EXISTS events, events_unpartitioned, streams CASCADE");
+  }
+
+  @Test
+  public void migrateToPartitionedEventsTable_ShouldKeepAllEventsAndVersions() {
+    var unpartitioned = new PgEventStore(dbConnection);
+    unpartitioned.init();
+
+    var bankAccountIds = List.of(
+      UUID.randomUUID().toString(),
+      UUID.randomUUID().toString(),
+      UUID.randomUUID().toString(),
+      UUID.randomUUID().toString(),
+      UUID.randomUUID().toString()
+    );
+    bankAccountIds.forEach(bankAccountId -> appendBankAccountEvents(unpartitioned, bankAccountId));
+
+    var rowsBefore = storedRows();
+    var eventsBefore = new HashMap<String, List<Object>>();
+    var bankAccountsBefore = new HashMap<String, Optional<BankAccount>>();
+    for (var bankAccountId : bankAccountIds) {
+      eventsBefore.put(bankAccountId, unpartitioned.getEvents(bankAccountId));
+      bankAccountsBefore.put(bankAccountId, getBankAccount(unpartitioned, bankAccountId));
+    }
+
+    var partitioned = partitionedEventStore();
+    partitioned.migrateToPartitionedEventsTable();
+    partitioned.init();
+
+    assertEquals("p", eventsTableKind());
+    assertEquals(rowsBefore, storedRows());
+
+    for (var bankAccountId : bankAccountIds) {
+      assertEquals(eventsBefore.get(bankAccountId), partitioned.getEvents(bankAccountId));
+      assertEquals(bankAccountsBefore.get(bankAccountId), getBankAccount(partitioned, bankAccountId));
+    }
+
+    // appends continue from the migrated stream version
+    var bankAccountId = bankAccountIds.getFirst();
+    partitioned.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      3L,
+      new DepositRecorded(bankAccountId, 20, UUID.randomUUID().toString(), LocalDateTime.now(), 4)
+    );
+    assertEquals(
+      new BankAccount(bankAccountId, BankAccount.BankAccountStatus.Opened, 100, 4),
+      getBankAccount(partitioned, bankAccountId).get()
+    );
+  }
+
+  @Test
+  public void init_WithPartitions_ShouldFail_WhenEventsTableIsNotMigrated() {
+    new PgEventStore(dbConnection).init();
+
+    var partitioned = partitionedEventStore();
+
+    assertThrows(IllegalStateException.class, partitioned::init);
+    assertEquals("r", eventsTableKind());
+  }
+
+  @Test
+  public void readEvents_WithPartitions_ShouldScanSinglePartition() {
+    var partitioned = partitionedEventStore();
+    partitioned.init();
+
+    var bankAccountId = UUID.randomUUID().toString();
+    appendBankAccountEvents(partitioned, bankAccountId);
+
+    var plan = querySql(
+      dbConnection,
+      "EXPLAIN SELECT * FROM events WHERE stream_id = ?::text ORDER BY version",
+      setStringParam(bankAccountId),
+      rs -> getString(rs, "QUERY PLAN")
+    );
+
+    var scannedPartitions = plan.stream()
+      .filter(line -> line.matches(".* on events_p\\d+.*"))
+      .count();
+
+    assertEquals(1, scannedPartitions, String.join("\n", plan));
+  }
+
+  private static PgEventStore partitionedEventStore() {
+    return new PgEventStore(
+      new SingleConnectionDataSource(dbConnection),
+      PgEventStore.DEFAULT_FETCH_SIZE,
+      null,
+      SnapshotPolicy.NEVER,
+      EventSerializer.JSON,
+      partitions
+    );
+  }
+
+  private static void appendBankAccountEvents(PgEventStore eventStore, String bankAccountId) {
+    var cashierId = UUID.randomUUID().toString();
+    var version = 0;
+
+    eventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new BankAccountOpened(
+        bankAccountId,
+        "PL61 1090 1014 0000 0712 1981 2874",
+        UUID.randomUUID().toString(),
+        "PLN",
+        LocalDateTime.now(),
+        version
+      ),
+      new DepositRecorded(bankAccountId, 100, cashierId, LocalDateTime.now(), ++version),
+      new DepositRecorded(bankAccountId, 30, cashierId, LocalDateTime.now(), ++version),
+      new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), LocalDateTime.now(), ++version)
+    );
+  }
+
+  private static List<String> storedRows() {
+    return querySql(
+      dbConnection,
+      """
+        SELECT concat_ws('|', id, stream_id, version, type, codec, data::text, created::text) AS row
+        FROM events
+        ORDER BY stream_id, version
+        """,
+      rs -> getString(rs, "row")
+    );
+  }
+
+  private static String eventsTableKind() {
+    return querySingleSql(
+      dbConnection,
+      "SELECT relkind::text AS kind FROM pg_class WHERE oid = to_regclass('events')",
+      rs -> getString(rs, "kind")
+    );
+  }
+}
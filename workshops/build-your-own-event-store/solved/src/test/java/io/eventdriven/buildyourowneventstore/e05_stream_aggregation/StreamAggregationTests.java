@@ -2,16 +2,24 @@ package io.eventdriven.buildyourowneventstore.e05_stream_aggregation;
 
 import bankaccounts.BankAccount;
 import io.eventdriven.buildyourowneventstore.EventStore;
+import io.eventdriven.buildyourowneventstore.EventSerializer;
+import io.eventdriven.buildyourowneventstore.EventTypeMapper;
 import io.eventdriven.buildyourowneventstore.PgEventStore;
+import io.eventdriven.buildyourowneventstore.PgSnapshotStore;
+import io.eventdriven.buildyourowneventstore.SnapshotPolicy;
+import io.eventdriven.buildyourowneventstore.VirtualThreadAsyncEventStore;
 import io.eventdriven.buildyourowneventstore.tools.PostgresTest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static bankaccounts.BankAccount.Event.*;
 import static bankaccounts.BankAccountService.getBankAccount;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -65,4 +73,191 @@ public class StreamAggregationTests extends PostgresTest {
       bankAccount.get()
     );
   }
+
+  @Test
+  public void aggregateStream_WithFetchSizeSmallerThanStream_ShouldFoldAllEvents() {
+    var streamingEventStore = new PgEventStore(dbConnection, 2);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var version = 0;
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId,
+      "PL61 1090 1014 0000 0712 1981 2874",
+      UUID.randomUUID().toString(),
+      "PLN",
+      LocalDateTime.now(),
+      version
+    );
+
+    var cashierId = UUID.randomUUID().toString();
+    var firstDeposit = new DepositRecorded(bankAccountId, 100, cashierId, LocalDateTime.now(), ++version);
+    var secondDeposit = new DepositRecorded(bankAccountId, 30, cashierId, LocalDateTime.now(), ++version);
+
+    var atmId = UUID.randomUUID().toString();
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, atmId, LocalDateTime.now(), ++version);
+
+    streamingEventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      bankAccountCreated, firstDeposit, secondDeposit, cashWithdrawn
+    );
+
+    var bankAccount = getBankAccount(streamingEventStore, bankAccountId);
+
+    assertTrue(bankAccount.isPresent());
+    assertEquals(
+      new BankAccount(bankAccountId, BankAccount.BankAccountStatus.Opened, 80, 3),
+      bankAccount.get()
+    );
+  }
+
+  @Test
+  public void aggregateStream_WithSnapshots_ShouldReturnSameStateAsFullReplay() {
+    var snapshottingEventStore = new PgEventStore(
+      dbConnection,
+      new PgSnapshotStore(dbConnection),
+      SnapshotPolicy.everyNEvents(2)
+    );
+    snapshottingEventStore.init();
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var cashierId = UUID.randomUUID().toString();
+    var version = 0;
+
+    snapshottingEventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new BankAccountOpened(
+        bankAccountId,
+        "PL61 1090 1014 0000 0712 1981 2874",
+        UUID.randomUUID().toString(),
+        "PLN",
+        LocalDateTime.now(),
+        version
+      ),
+      new DepositRecorded(bankAccountId, 100, cashierId, LocalDateTime.now(), ++version),
+      new DepositRecorded(bankAccountId, 30, cashierId, LocalDateTime.now(), ++version)
+    );
+
+    // stores snapshot at version 2
+    var snapshotted = getBankAccount(snapshottingEventStore, bankAccountId);
+    assertEquals(
+      new BankAccount(bankAccountId, BankAccount.BankAccountStatus.Opened, 130, 2),
+      snapshotted.get()
+    );
+
+    snapshottingEventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), LocalDateTime.now(), ++version)
+    );
+
+    assertEquals(
+      getBankAccount(eventStore, bankAccountId),
+      getBankAccount(snapshottingEventStore, bankAccountId)
+    );
+    assertEquals(
+      getBankAccount(eventStore, bankAccountId, 1L, null),
+      getBankAccount(snapshottingEventStore, bankAccountId, 1L, null)
+    );
+  }
+
+  @Test
+  public void aggregateStream_WithEventsWrittenWithDifferentCodecs_ShouldFoldAllEvents() {
+    var binaryEventStore = new PgEventStore(dbConnection, EventSerializer.SMILE);
+
+    var bankAccountId = UUID.randomUUID().toString();
+    var cashierId = UUID.randomUUID().toString();
+    var version = 0;
+
+    eventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new BankAccountOpened(
+        bankAccountId,
+        "PL61 1090 1014 0000 0712 1981 2874",
+        UUID.randomUUID().toString(),
+        "PLN",
+        LocalDateTime.now(),
+        version
+      ),
+      new DepositRecorded(bankAccountId, 100, cashierId, LocalDateTime.now(), ++version)
+    );
+
+    binaryEventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new DepositRecorded(bankAccountId, 30, cashierId, LocalDateTime.now(), ++version),
+      new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), LocalDateTime.now(), ++version)
+    );
+
+    var expected = new BankAccount(bankAccountId, BankAccount.BankAccountStatus.Opened, 80, 3);
+
+    assertEquals(expected, getBankAccount(eventStore, bankAccountId).get());
+    assertEquals(expected, getBankAccount(binaryEventStore, bankAccountId).get());
+  }
+
+  // registrations are global, so the type ids test uses its own event types
+  // instead of changing how bank account events are stored by the other tests
+  public record TypeIdCounterStarted(String counterId) {
+  }
+
+  public record TypeIdCounterIncremented(String counterId, int by) {
+  }
+
+  @Test
+  public void aggregateStream_WithRegisteredTypeIds_ShouldResolveEventsById() {
+    EventTypeMapper.register(TypeIdCounterStarted.class, "TypeIdCounterStarted", 1);
+    EventTypeMapper.register(TypeIdCounterIncremented.class, "TypeIdCounterIncremented", 2);
+
+    var counterId = UUID.randomUUID().toString();
+    var events = List.<Object>of(
+      new TypeIdCounterStarted(counterId),
+      new TypeIdCounterIncremented(counterId, 2),
+      new TypeIdCounterIncremented(counterId, 3)
+    );
+
+    eventStore.appendEvents(TypeIdCounterStarted.class, counterId, events.toArray());
+
+    var typeIds = querySql(
+      dbConnection,
+      "SELECT type_id FROM events WHERE stream_id = ? ORDER BY version",
+      setStringParam(counterId),
+      rs -> getInteger(rs, "type_id")
+    );
+
+    assertEquals(List.of(1, 2, 2), typeIds);
+    assertEquals(events, eventStore.getEvents(counterId));
+  }
+
+  @Test
+  public void aggregateStream_OnVirtualThreads_ShouldReturnSameStateAsBlockingCall() throws Exception {
+    var bankAccountId = UUID.randomUUID().toString();
+    var version = 0;
+
+    // store uses a single connection, so calls can't run concurrently
+    try (var asyncEventStore = new VirtualThreadAsyncEventStore(eventStore, 1)) {
+      var bankAccount = asyncEventStore.appendEvents(
+        BankAccount.class,
+        bankAccountId,
+        new BankAccountOpened(
+          bankAccountId,
+          "PL61 1090 1014 0000 0712 1981 2874",
+          UUID.randomUUID().toString(),
+          "PLN",
+          LocalDateTime.now(),
+          version
+        ),
+        new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), LocalDateTime.now(), ++version)
+      ).thenCompose(_ -> asyncEventStore.<BankAccount, BankAccount.Event>aggregateStream(
+        () -> new BankAccount(null, null, 0, -1),
+        BankAccount::evolve,
+        bankAccountId
+      )).get(10, TimeUnit.SECONDS);
+
+      assertEquals(getBankAccount(eventStore, bankAccountId), bankAccount);
+      assertEquals(100, bankAccount.get().balance());
+    }
+  }
 }
@@ -1,21 +1,25 @@
 package io.eventdriven.buildyourowneventstore.e06_time_travelling;
 
 import bankaccounts.BankAccount;
-import io.eventdriven.buildyourowneventstore.EventStore;
 import io.eventdriven.buildyourowneventstore.PgEventStore;
 import io.eventdriven.buildyourowneventstore.tools.PostgresTest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static bankaccounts.BankAccount.Event.*;
 import static bankaccounts.BankAccountService.getBankAccount;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.getLocalDateTime;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.querySingleSql;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class TimeTravellingTests extends PostgresTest {
-  protected static EventStore eventStore;
+  protected static PgEventStore eventStore;
 
   @BeforeAll
   public void setup() {
@@ -80,4 +84,70 @@ public class TimeTravellingTests extends PostgresTest {
       aggregateAtVersion3
     );
   }
+
+  @Test
+  public void aggregateStream_ShouldReturnStateAtSpecifiedTimestamp() {
+    var firstAccountId = UUID.randomUUID().toString();
+    var secondAccountId = UUID.randomUUID().toString();
+    var cashierId = UUID.randomUUID().toString();
+
+    for (var bankAccountId : List.of(firstAccountId, secondAccountId)) {
+      eventStore.appendEvents(
+        BankAccount.class,
+        bankAccountId,
+        new BankAccountOpened(
+          bankAccountId,
+          "PL61 1090 1014 0000 0712 1981 2874",
+          UUID.randomUUID().toString(),
+          "PLN",
+          LocalDateTime.now(),
+          0
+        ),
+        new DepositRecorded(bankAccountId, 100, cashierId, LocalDateTime.now(), 1)
+      );
+    }
+
+    // database clock is used, as `created` is set by the database
+    var beforeWithdrawal = querySingleSql(
+      dbConnection,
+      "SELECT localtimestamp AS now",
+      rs -> getLocalDateTime(rs, "now")
+    );
+
+    eventStore.appendEvents(
+      BankAccount.class,
+      firstAccountId,
+      new CashWithdrawnFromATM(firstAccountId, 50, UUID.randomUUID().toString(), LocalDateTime.now(), 2)
+    );
+
+    assertEquals(Optional.of(1L), eventStore.getStreamVersionAt(firstAccountId, beforeWithdrawal));
+    assertEquals(
+      new BankAccount(firstAccountId, BankAccount.BankAccountStatus.Opened, 100, 1),
+      getBankAccount(eventStore, firstAccountId, null, beforeWithdrawal).get()
+    );
+    assertEquals(
+      new BankAccount(firstAccountId, BankAccount.BankAccountStatus.Opened, 50, 2),
+      getBankAccount(eventStore, firstAccountId).get()
+    );
+
+    var missingAccountId = UUID.randomUUID().toString();
+    var streamIds = List.of(firstAccountId, secondAccountId, missingAccountId);
+
+    assertEquals(
+      Map.of(firstAccountId, 1L, secondAccountId, 1L),
+      eventStore.getStreamVersionsAt(streamIds, beforeWithdrawal)
+    );
+    assertEquals(
+      Map.of(
+        firstAccountId, new BankAccount(firstAccountId, BankAccount.BankAccountStatus.Opened, 100, 1),
+        secondAccountId, new BankAccount(secondAccountId, BankAccount.BankAccountStatus.Opened, 100, 1)
+      ),
+      eventStore.aggregateStreamsAt(
+        () -> new BankAccount(null, null, 0, -1),
+        BankAccount::evolve,
+        streamIds,
+        beforeWithdrawal
+      )
+    );
+  }
 }
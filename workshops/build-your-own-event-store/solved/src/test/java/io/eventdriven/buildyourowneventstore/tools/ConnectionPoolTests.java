@@ -0,0 +1,138 @@
+package io.eventdriven.buildyourowneventstore.tools;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static bankaccounts.BankAccount.Event.BankAccountOpened;
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+import static io.eventdriven.buildyourowneventstore.tools.SqlInvoker.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+  private static final Duration acquireTimeout = Duration.ofMillis(200);
+
+  @Test
+  public void appendEvents_ThroughPool_ShouldDetectConflict_WhenRacingOnTheSameStream() throws Exception {
+    var races = 20;
+
+    try (
+      var pool = PostgresDbConnectionProvider.getFreshConnectionPool(2);
+      var executor = Executors.newFixedThreadPool(2)
+    ) {
+      var eventStore = new PgEventStore(pool);
+      eventStore.init();
+
+      var bankAccountId = UUID.randomUUID().toString();
+      eventStore.appendEvents(
+        BankAccount.class,
+        bankAccountId,
+        new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", "client", "PLN", LocalDateTime.now(), 0)
+      );
+
+      for (var race = 0L; race < races; race++) {
+        var expectedVersion = race;
+        var start = new CountDownLatch(1);
+
+        Callable<Boolean> append = () -> {
+          start.await();
+          try {
+            eventStore.appendEvents(
+              BankAccount.class,
+              bankAccountId,
+              expectedVersion,
+              new DepositRecorded(bankAccountId, 10, "cashier", LocalDateTime.now(), expectedVersion + 1)
+            );
+            return true;
+          } catch (IllegalStateException e) {
+            return false;
+          }
+        };
+
+        var first = executor.submit(append);
+        var second = executor.submit(append);
+        start.countDown();
+
+        var succeeded = List.of(first.get(), second.get());
+        assertEquals(1, succeeded.stream().filter(s -> s).count(), "race " + race);
+      }
+
+      var versions = withConnection(pool, connection ->
+        querySql(
+          connection,
+          "SELECT version FROM events WHERE stream_id = ? ORDER BY version",
+          setStringParam(bankAccountId),
+          rs -> getLong(rs, "version")
+        )
+      );
+
+      assertEquals(LongStream.rangeClosed(0, races).boxed().toList(), versions);
+    }
+  }
+
+  @Test
+  public void close_ShouldRollBackPendingTransaction() throws Exception {
+    try (var pool = PostgresDbConnectionProvider.getFreshConnectionPool(1, acquireTimeout)) {
+      try (var connection = pool.getConnection()) {
+        executeSql(connection, "CREATE TABLE pool_rollback_test(id TEXT PRIMARY KEY)");
+      }
+
+      var connection = pool.getConnection();
+      connection.setAutoCommit(false);
+      executeSql(connection, "INSERT INTO pool_rollback_test(id) VALUES ('uncommitted')");
+      // returned without commit
+      connection.close();
+
+      // single connection pool hands out the same physical connection again
+      try (var reused = pool.getConnection()) {
+        Long rows = querySingleSql(
+          reused,
+          "SELECT count(*) AS count FROM pool_rollback_test",
+          rs -> getLong(rs, "count")
+        );
+
+        assertTrue(reused.getAutoCommit());
+        assertEquals(0L, rows);
+      }
+    }
+  }
+
+  @Test
+  public void getConnection_ShouldTimeOut_WhenPoolIsExhausted() throws Exception {
+    try (
+      var pool = PostgresDbConnectionProvider.getFreshConnectionPool(2, acquireTimeout);
+      var _ = pool.getConnection();
+      var _ = pool.getConnection()
+    ) {
+      assertThrows(SQLTimeoutException.class, pool::getConnection);
+    }
+  }
+
+  @Test
+  public void close_CalledTwice_ShouldReturnConnectionOnlyOnce() throws Exception {
+    try (var pool = PostgresDbConnectionProvider.getFreshConnectionPool(1, acquireTimeout)) {
+      var connection = pool.getConnection();
+      connection.close();
+      connection.close();
+
+      assertTrue(connection.isClosed());
+      assertThrows(SQLException.class, connection::createStatement);
+
+      try (var _ = pool.getConnection()) {
+        // second permit would be there if the double close released it twice
+        assertThrows(SQLTimeoutException.class, pool::getConnection);
+      }
+    }
+  }
+}
@@ -3,6 +3,7 @@ package io.eventdriven.buildyourowneventstore.tools;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 
 public final class PostgresDbConnectionProvider {
   public static Connection getFreshDbConnection() {
@@ -13,16 +14,57 @@ public final class PostgresDbConnectionProvider {
       .getName()
       .replace(".", "_");
 
+    return getFreshDbConnection(testClassName);
+  }
+
+  public static ConnectionPool getFreshConnectionPool(int maxSize) {
+    // get the test class name that will be used as POSTGRES schema
+    var testClassName = StackWalker
+      .getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE)
+      .getCallerClass()
+      .getName()
+      .replace(".", "_");
+
+    return getFreshConnectionPool(testClassName, maxSize, Duration.ofSeconds(30));
+  }
+
+  public static ConnectionPool getFreshConnectionPool(int maxSize, Duration acquireTimeout) {
+    // get the test class name that will be used as POSTGRES schema
+    var testClassName = StackWalker
+      .getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE)
+      .getCallerClass()
+      .getName()
+      .replace(".", "_");
+
+    return getFreshConnectionPool(testClassName, maxSize, acquireTimeout);
+  }
+
+  private static ConnectionPool getFreshConnectionPool(String schemaName, int maxSize, Duration acquireTimeout) {
+    try (var _ = getFreshDbConnection(schemaName)) {
+      return new ConnectionPool(
+        connectionString(schemaName),
+        Settings.userName,
+        Settings.password,
+        maxSize,
+        acquireTimeout,
+        StatementCache.Settings.DEFAULT
+      );
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Connection getFreshDbConnection(String schemaName) {
     // each test will have its own schema name to run have data isolation and not interfere other tests
     Connection connection = null;
     try {
       connection = DriverManager.getConnection(
-        Settings.connectionString + "?currentSchema=%s".formatted(testClassName),
+        connectionString(schemaName),
         Settings.userName,
         Settings.password
       );
       try (var statement = connection.createStatement()) {
-        statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(testClassName));
+        statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(schemaName));
       }
 
       return connection;
@@ -30,4 +72,8 @@ public final class PostgresDbConnectionProvider {
       throw new RuntimeException(e);
     }
   }
+
+  private static String connectionString(String schemaName) {
+    return Settings.connectionString + "?currentSchema=%s".formatted(schemaName);
+  }
 }
@@ -0,0 +1,72 @@
+package io.eventdriven.buildyourowneventstore.tools;
+
+import bankaccounts.BankAccount;
+import io.eventdriven.buildyourowneventstore.PgEventStore;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static bankaccounts.BankAccount.Event.BankAccountOpened;
+import static bankaccounts.BankAccount.Event.DepositRecorded;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTests extends PostgresTest {
+  @Test
+  public void readEvents_ShouldReuseCachedStatement_WhenReadingTheSameStreamAgain() {
+    var dataSource = new SingleConnectionDataSource(dbConnection);
+    var eventStore = new PgEventStore(dataSource);
+    eventStore.init();
+
+    var bankAccountId = UUID.randomUUID().toString();
+    eventStore.appendEvents(
+      BankAccount.class,
+      bankAccountId,
+      new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", "client", "PLN", LocalDateTime.now(), 0),
+      new DepositRecorded(bankAccountId, 100, "cashier", LocalDateTime.now(), 1)
+    );
+
+    var metrics = dataSource.statementCacheMetrics();
+
+    eventStore.getEvents(bankAccountId);
+    var missesAfterFirstRead = metrics.misses();
+    var hitsAfterFirstRead = metrics.hits();
+
+    var events = eventStore.getEvents(bankAccountId);
+
+    assertEquals(2, events.size());
+    assertEquals(missesAfterFirstRead, metrics.misses());
+    assertTrue(metrics.hits() > hitsAfterFirstRead, metrics.toString());
+  }
+
+  @Test
+  public void prepareStatement_ShouldEvictAndCloseLeastRecentlyUsed_WhenCacheIsFull() throws SQLException {
+    var metrics = new StatementCache.Metrics();
+    var statementCache = new StatementCache(dbConnection, new StatementCache.Settings(2, 1), metrics);
+
+    var first = prepareAndReturn(statementCache, "SELECT 1");
+    var second = prepareAndReturn(statementCache, "SELECT 2");
+    var third = prepareAndReturn(statementCache, "SELECT 3");
+
+    assertEquals(1, metrics.evictions());
+    assertTrue(first.isClosed());
+    assertFalse(second.isClosed());
+    assertFalse(third.isClosed());
+
+    statementCache.close();
+
+    assertTrue(second.isClosed());
+    assertTrue(third.isClosed());
+  }
+
+  // returns the driver statement, as the cached one reports itself closed once returned
+  private static PreparedStatement prepareAndReturn(StatementCache statementCache, String sql) throws SQLException {
+    try (var statement = statementCache.prepareStatement(sql)) {
+      statement.execute();
+
+      return statement.unwrap(PreparedStatement.class);
+    }
+  }
+}
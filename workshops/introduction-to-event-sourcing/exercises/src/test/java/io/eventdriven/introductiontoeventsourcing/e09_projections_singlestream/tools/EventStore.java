@@ -9,6 +9,8 @@ import static io.eventdriven.introductiontoeventsourcing.e09_projections_singles
 public class EventStore {
   private final Map<String, List<Consumer<EventEnvelopeBase>>> handlers = new HashMap<>();
   private final Map<UUID, List<EventEnvelopeBase>> events = new HashMap<>();
+  // number of events in all streams, kept instead of summing them on each append
+  private long logPosition = 0;
 
   public <Event> void append(UUID streamId, Event event) {
     events.compute(streamId, (stream, events) -> {
@@ -16,7 +18,7 @@ public class EventStore {
         events = new ArrayList<>();
 
       var eventEnvelope =
-        new EventEnvelope<>(event, EventMetadata.of(events.size(), getCurrentLogPosition()));
+        new EventEnvelope<>(event, EventMetadata.of(events.size(), logPosition++));
 
       events.add(eventEnvelope);
 
@@ -44,10 +46,4 @@ public class EventStore {
       return consumers;
     });
   }
-
-  private int getCurrentLogPosition() {
-    return events.values().stream()
-      .mapToInt(List::size)
-      .sum();
-  }
 }
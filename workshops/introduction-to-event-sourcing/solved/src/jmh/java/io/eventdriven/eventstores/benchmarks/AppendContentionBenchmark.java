@@ -0,0 +1,115 @@
+package io.eventdriven.eventstores.benchmarks;
+
+import io.eventdriven.eventstores.EventStore.InvalidExpectedStreamPositionException;
+import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.postgresql.PostgreSQLEventStore;
+import io.eventdriven.eventstores.postgresql.PostgreSQLEventStore.AppendMode;
+import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import io.eventdriven.eventstores.testing.tools.postgresql.PostgreSQLDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.DepositRecorded;
+
+/**
+ * Compares appends with `SELECT ... FOR UPDATE` and with a conditional update, with writers
+ * competing for a single stream or each writing to its own one, against PostgreSQL started with
+ * docker-compose. Number of writers is set with `-PjmhThreads`, e.g.
+ * `./gradlew jmh -PjmhIncludes=AppendContentionBenchmark -PjmhThreads=16`.
+ * <p>
+ * Each invocation reads the current stream position and appends with it as the expected one.
+ * Successful appends and conflicts are reported as separate secondary results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AppendContentionBenchmark {
+  public enum Streams {
+    One,
+    PerWriter
+  }
+
+  @State(Scope.Benchmark)
+  public static class SharedState {
+    private static final String schemaName = "jmh_append_contention_benchmark";
+
+    @Param
+    public AppendMode appendMode;
+
+    @Param
+    public Streams streams;
+
+    private StreamName sharedStream;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+      try (var connection = PostgreSQLDbConnectionProvider.getDbConnection(schemaName);
+           var statement = connection.createStatement()) {
+        statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(schemaName));
+      }
+      // schema is created once, so writers don't race on CREATE OR REPLACE FUNCTION
+      try (var eventStore = new PostgreSQLEventStore(PostgreSQLDbConnectionProvider.getDbConnection(schemaName))) {
+        eventStore.init();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+
+      sharedStream = StreamName.randomOf(BankAccount.class);
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class WriterState {
+    public long appends;
+    public long conflicts;
+
+    private Connection connection;
+    private PostgreSQLEventStore eventStore;
+    private StreamName streamName;
+
+    @Setup(Level.Trial)
+    public void setup(SharedState shared) {
+      connection = PostgreSQLDbConnectionProvider.getDbConnection(SharedState.schemaName);
+      eventStore = new PostgreSQLEventStore(connection, shared.appendMode);
+      streamName = shared.streams == Streams.One ? shared.sharedStream : StreamName.randomOf(BankAccount.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+      appends = 0;
+      conflicts = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+      connection.close();
+    }
+  }
+
+  @Benchmark
+  public void append(WriterState writer) {
+    var currentPosition = querySql(
+      writer.connection,
+      "SELECT stream_position FROM streams WHERE id = ?",
+      setStringParam(writer.streamName.streamId()),
+      rs -> getLong(rs, "stream_position")
+    ).stream().findFirst().orElse(0L);
+
+    try {
+      writer.eventStore.appendToStream(
+        writer.streamName,
+        currentPosition,
+        List.of(new DepositRecorded(writer.streamName.streamId(), 10, "cashier", LocalDateTime.now(), currentPosition))
+      );
+      writer.appends++;
+    } catch (InvalidExpectedStreamPositionException e) {
+      writer.conflicts++;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package io.eventdriven.eventstores.benchmarks;
+
+import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.postgresql.BulkEventImporter;
+import io.eventdriven.eventstores.postgresql.BulkEventImporter.ImportResult;
+import io.eventdriven.eventstores.postgresql.BulkEventImporter.ImportedEvent;
+import io.eventdriven.eventstores.postgresql.PostgreSQLEventStore;
+import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import io.eventdriven.eventstores.testing.tools.postgresql.PostgreSQLDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.DepositRecorded;
+
+/**
+ * Compares loading the same events with `append_to_stream` (one call per stream chunk)
+ * and with the COPY-based bulk importer, against PostgreSQL started with docker-compose.
+ * Each invocation loads `eventsCount` events spread over 1000 new streams.
+ * Run with `./gradlew jmh -PjmhIncludes=BulkImportBenchmark`.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BulkImportBenchmark {
+  private static final String schemaName = "jmh_bulk_import_benchmark";
+  private static final int streams = 1_000;
+  private static final int appendBatchSize = 100;
+
+  @Param({"100000", "1000000"})
+  public int eventsCount;
+
+  private PostgreSQLEventStore eventStore;
+
+  @Setup(Level.Trial)
+  public void setup() throws SQLException {
+    var connection = PostgreSQLDbConnectionProvider.getDbConnection(schemaName);
+    try (var statement = connection.createStatement()) {
+      statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(schemaName));
+    }
+
+    eventStore = new PostgreSQLEventStore(connection);
+    eventStore.init();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    eventStore.close();
+  }
+
+  @Benchmark
+  public void appendToStream() {
+    var streamNames = randomStreams();
+
+    for (var from = 0; from < eventsCount; from += appendBatchSize * streams) {
+      for (var streamName : streamNames) {
+        var events = IntStream.range(0, appendBatchSize)
+          .<Object>mapToObj(_ -> deposit(streamName))
+          .toList();
+
+        eventStore.appendToStream(streamName, events);
+      }
+    }
+  }
+
+  @Benchmark
+  public ImportResult bulkImport() throws Exception {
+    var streamNames = randomStreams();
+
+    var events = new Iterator<ImportedEvent>() {
+      private int position = 0;
+
+      @Override
+      public boolean hasNext() {
+        return position < eventsCount;
+      }
+
+      @Override
+      public ImportedEvent next() {
+        var streamName = streamNames.get(position++ % streams);
+        return ImportedEvent.of(streamName, deposit(streamName));
+      }
+    };
+
+    try (var importer = new BulkEventImporter(
+      PostgreSQLDbConnectionProvider.getDbConnection(schemaName),
+      BulkEventImporter.Settings.DEFAULT
+    )) {
+      return importer.importEvents(UUID.randomUUID().toString(), events);
+    }
+  }
+
+  private static List<StreamName> randomStreams() {
+    return IntStream.range(0, streams)
+      .mapToObj(_ -> StreamName.randomOf(BankAccount.class))
+      .toList();
+  }
+
+  private static Object deposit(StreamName streamName) {
+    return new DepositRecorded(streamName.streamId(), 10, "cashier", LocalDateTime.now(), 0);
+  }
+}
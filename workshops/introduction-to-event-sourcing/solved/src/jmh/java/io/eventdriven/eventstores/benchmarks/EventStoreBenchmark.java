@@ -0,0 +1,180 @@
+package io.eventdriven.eventstores.benchmarks;
+
+import com.mongodb.client.MongoClient;
+import io.eventdriven.eventstores.EventStore;
+import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.mongodb.MongoDBEventStore;
+import io.eventdriven.eventstores.mongodb.config.NativeMongoConfig;
+import io.eventdriven.eventstores.postgresql.PostgreSQLEventStore;
+import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import io.eventdriven.eventstores.testing.tools.postgresql.PostgreSQLDbConnectionProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.BankAccountOpened;
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.DepositRecorded;
+
+/**
+ * Compares append, read and aggregation across storage designs, against databases started
+ * with docker-compose. Run with `./gradlew jmh`, results are written as JSON to `build/results/jmh`.
+ * <p>
+ * Append writes `batchSize` events to a new stream, either with a single call (PostgreSQL array append,
+ * MongoDB) or one call per event. Read and aggregate load a stream of `streamLength` events.
+ * Number of threads is set with `-PjmhThreads`, each PostgreSQL thread uses its own connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventStoreBenchmark {
+  public enum Backend {
+    PostgreSQLArrayAppend,
+    PostgreSQLPerEventAppend,
+    MongoDBStreamAsDocument,
+    MongoDBEventAsDocument
+  }
+
+  @State(Scope.Benchmark)
+  public static class BackendState {
+    private static final String schemaName = "jmh_event_store_benchmark";
+    private static final String databaseName = "jmh-event-store-benchmark";
+
+    @Param
+    public Backend backend;
+
+    private MongoClient mongoClient;
+    private MongoDBEventStore mongoEventStore;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+      switch (backend) {
+        case PostgreSQLArrayAppend, PostgreSQLPerEventAppend -> {
+          try (var connection = PostgreSQLDbConnectionProvider.getDbConnection(schemaName);
+               var statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(schemaName));
+          }
+          // schema is created once, so threads don't race on CREATE OR REPLACE FUNCTION
+          try (var eventStore = new PostgreSQLEventStore(PostgreSQLDbConnectionProvider.getDbConnection(schemaName))) {
+            eventStore.init();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+        case MongoDBStreamAsDocument, MongoDBEventAsDocument -> {
+          mongoClient = NativeMongoConfig.createClient();
+          mongoClient.getDatabase(databaseName).drop();
+
+          mongoEventStore = MongoDBEventStore.with(
+            backend == Backend.MongoDBStreamAsDocument ?
+              MongoDBEventStore.Storage.StoreAsDocument
+              : MongoDBEventStore.Storage.EventAsDocument,
+            mongoClient,
+            databaseName
+          );
+          mongoEventStore.init();
+        }
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (mongoClient != null)
+        mongoClient.close();
+    }
+
+    boolean appendsPerEvent() {
+      return backend == Backend.PostgreSQLPerEventAppend;
+    }
+
+    // PostgreSQL store wraps a single connection, MongoDB one is thread-safe
+    Connection openConnection() {
+      return mongoEventStore == null ? PostgreSQLDbConnectionProvider.getDbConnection(schemaName) : null;
+    }
+
+    EventStore eventStore(Connection connection) {
+      return mongoEventStore == null ? new PostgreSQLEventStore(connection) : mongoEventStore;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    @Param({"10", "100", "1000"})
+    public int streamLength;
+
+    @Param({"1", "10", "100"})
+    public int batchSize;
+
+    private Connection connection;
+    private EventStore eventStore;
+    private boolean appendsPerEvent;
+    private List<Object> batch;
+    private StreamName filledStream;
+
+    @Setup(Level.Trial)
+    public void setup(BackendState backend) {
+      connection = backend.openConnection();
+      eventStore = backend.eventStore(connection);
+      appendsPerEvent = backend.appendsPerEvent();
+
+      var bankAccountId = UUID.randomUUID().toString();
+      batch = events(bankAccountId, batchSize);
+
+      filledStream = StreamName.of(BankAccount.class, bankAccountId);
+      var streamEvents = events(bankAccountId, streamLength);
+      for (var from = 0; from < streamLength; from += 100) {
+        eventStore.appendToStream(filledStream, streamEvents.subList(from, Math.min(from + 100, streamLength)));
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+      if (connection != null)
+        connection.close();
+    }
+
+    private static List<Object> events(String bankAccountId, int count) {
+      var now = LocalDateTime.now();
+      var events = new ArrayList<Object>(count);
+
+      events.add(new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", "client", "PLN", now, 0));
+      for (var version = 1; version < count; version++) {
+        events.add(new DepositRecorded(bankAccountId, 10, "cashier", now, version));
+      }
+
+      return events;
+    }
+  }
+
+  @Benchmark
+  public long append(ThreadState state) {
+    var streamName = StreamName.randomOf(BankAccount.class);
+
+    if (!state.appendsPerEvent)
+      return state.eventStore.appendToStream(streamName, 0L, state.batch).nextExpectedStreamPosition();
+
+    var position = 0L;
+    for (var event : state.batch) {
+      position = state.eventStore.appendToStream(streamName, position, List.of(event)).nextExpectedStreamPosition();
+    }
+    return position;
+  }
+
+  @Benchmark
+  public EventStore.ReadStreamResult read(ThreadState state) {
+    return state.eventStore.readStream(state.filledStream);
+  }
+
+  @Benchmark
+  public BankAccount aggregate(ThreadState state) {
+    return state.eventStore.<BankAccount, BankAccount.Event>aggregateStream(
+      () -> null,
+      BankAccount::evolve,
+      state.filledStream
+    ).state();
+  }
+}
@@ -0,0 +1,126 @@
+package io.eventdriven.eventstores;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the latest known state of aggregates together with the stream position it was built from.
+ * Least recently used entries are evicted when the cache is full, entries older than TTL are ignored.
+ * States are shared between callers, so they have to be immutable.
+ */
+public final class AggregateCache {
+  private final Settings settings;
+  private final Metrics metrics = new Metrics();
+  private final LinkedHashMap<StreamName, Entry<?>> entries;
+
+  public AggregateCache(Settings settings) {
+    this.settings = settings;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StreamName, Entry<?>> eldest) {
+        if (size() <= settings.maxSize())
+          return false;
+
+        metrics.evictions.increment();
+        return true;
+      }
+    };
+  }
+
+  public synchronized <State> Optional<Entry<State>> get(StreamName streamName) {
+    var entry = entries.get(streamName);
+
+    if (entry != null && System.nanoTime() - entry.cachedAt() > settings.timeToLive().toNanos()) {
+      entries.remove(streamName);
+      entry = null;
+    }
+
+    if (entry == null) {
+      metrics.misses.increment();
+      return Optional.empty();
+    }
+
+    metrics.hits.increment();
+    metrics.savedEventReads.add(entry.streamPosition());
+
+    @SuppressWarnings("unchecked")
+    var typedEntry = (Entry<State>) entry;
+    return Optional.of(typedEntry);
+  }
+
+  public synchronized void put(StreamName streamName, Object state, long streamPosition) {
+    var current = entries.get(streamName);
+
+    // concurrent command could have already cached a newer state
+    if (current != null && current.streamPosition() > streamPosition)
+      return;
+
+    entries.put(streamName, new Entry<>(state, streamPosition, System.nanoTime()));
+  }
+
+  public synchronized void invalidate(StreamName streamName) {
+    if (entries.remove(streamName) != null)
+      metrics.invalidations.increment();
+  }
+
+  public Metrics metrics() {
+    return metrics;
+  }
+
+  public record Entry<State>(State state, long streamPosition, long cachedAt) {
+  }
+
+  /**
+   * @param maxSize    maximum number of cached aggregates
+   * @param timeToLive time after which cached state is read again from scratch
+   */
+  public record Settings(int maxSize, Duration timeToLive) {
+    public static final Settings DEFAULT = new Settings(10_000, Duration.ofMinutes(5));
+  }
+
+  public static final class Metrics {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder savedEventReads = new LongAdder();
+
+    public long hits() {
+      return hits.sum();
+    }
+
+    public long misses() {
+      return misses.sum();
+    }
+
+    public long evictions() {
+      return evictions.sum();
+    }
+
+    public long invalidations() {
+      return invalidations.sum();
+    }
+
+    /**
+     * Number of events that didn't have to be read and applied thanks to cached states.
+     */
+    public long savedEventReads() {
+      return savedEventReads.sum();
+    }
+
+    public double hitRatio() {
+      var hits = hits();
+      var total = hits + misses();
+      return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+      return "AggregateCache.Metrics[hits=%d, misses=%d, evictions=%d, invalidations=%d, savedEventReads=%d]"
+        .formatted(hits(), misses(), evictions(), invalidations(), savedEventReads());
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package io.eventdriven.eventstores;
+
+import io.eventdriven.eventstores.EventStore.AppendResult;
+import io.eventdriven.eventstores.EventStore.ReadStreamResult;
+import io.eventdriven.eventstores.EventStore.StreamAggregationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link EventStore}. Futures complete with the same results
+ * and fail with the same exceptions as the blocking methods.
+ */
+public interface AsyncEventStore {
+  default CompletableFuture<AppendResult> appendToStream(
+    StreamName streamName,
+    List<Object> events
+  ) {
+    return appendToStream(streamName, null, events);
+  }
+
+  CompletableFuture<AppendResult> appendToStream(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events
+  );
+
+  CompletableFuture<ReadStreamResult> readStream(StreamName streamName);
+
+  default <State, Event> CompletableFuture<StreamAggregationResult<State>> aggregateStream(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName
+  ) {
+    return readStream(streamName).thenApply(readResult -> {
+      var state = getInitial.get();
+
+      for (var event : readResult.events()) {
+        state = evolve.apply(state, (Event) event);
+      }
+
+      return new StreamAggregationResult<>(
+        readResult.currentStreamPosition(),
+        state
+      );
+    });
+  }
+
+  default <State, Event> CompletableFuture<AppendResult> getAndUpdate(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName,
+    Long expectedStreamPosition,
+    Function<State, List<Event>> handle
+  ) {
+    return aggregateStream(getInitial, evolve, streamName).thenCompose(aggregationResult -> {
+      var events = handle.apply(aggregationResult.state());
+
+      if (events.isEmpty()) {
+        return CompletableFuture.completedFuture(new AppendResult(aggregationResult.currentStreamPosition()));
+      }
+
+      return appendToStream(streamName, expectedStreamPosition, new ArrayList<>(events));
+    });
+  }
+
+  default <State, Event> CompletableFuture<AppendResult> getAndUpdate(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName,
+    Function<State, List<Event>> handle
+  ) {
+    return aggregateStream(getInitial, evolve, streamName).thenCompose(aggregationResult -> {
+      var events = handle.apply(aggregationResult.state());
+
+      if (events.isEmpty()) {
+        return CompletableFuture.completedFuture(new AppendResult(aggregationResult.currentStreamPosition()));
+      }
+
+      return appendToStream(streamName, aggregationResult.currentStreamPosition(), new ArrayList<>(events));
+    });
+  }
+}
@@ -0,0 +1,144 @@
+package io.eventdriven.eventstores;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Event store decorator keeping aggregates built in `aggregateStream` and `getAndUpdate` in memory.
+ * <p>
+ * Cached state is never trusted blindly: only events after the cached position are read
+ * and applied, so appends done by other nodes or directly through the store are still seen.
+ * After a successful append the new events are applied to the state and cached (write-through).
+ * On an optimistic concurrency failure the entry is invalidated and, if the caller didn't pass
+ * the expected stream position explicitly, the command is retried on the fresh state.
+ * <p>
+ * Cache is keyed by stream name, so a stream should always be aggregated into the same state type.
+ */
+public class CachingEventStore implements EventStore {
+  private final EventStore eventStore;
+  private final AggregateCache cache;
+  private final int maxRetries;
+
+  public CachingEventStore(EventStore eventStore, AggregateCache cache) {
+    this(eventStore, cache, 3);
+  }
+
+  public CachingEventStore(EventStore eventStore, AggregateCache cache, int maxRetries) {
+    this.eventStore = eventStore;
+    this.cache = cache;
+    this.maxRetries = maxRetries;
+  }
+
+  @Override
+  public void init() {
+    eventStore.init();
+  }
+
+  @Override
+  public AppendResult appendToStream(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events
+  ) {
+    return eventStore.appendToStream(streamName, expectedStreamPosition, events);
+  }
+
+  @Override
+  public ReadStreamResult readStream(StreamName streamName) {
+    return eventStore.readStream(streamName);
+  }
+
+  @Override
+  public ReadStreamResult readStreamAfter(StreamName streamName, long afterStreamPosition) {
+    return eventStore.readStreamAfter(streamName, afterStreamPosition);
+  }
+
+  @Override
+  public <State, Event> StreamAggregationResult<State> aggregateStream(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName
+  ) {
+    var cached = cache.<State>get(streamName);
+
+    var readResult = cached.isPresent() ?
+      eventStore.readStreamAfter(streamName, cached.get().streamPosition())
+      : eventStore.readStream(streamName);
+
+    var state = cached.isPresent() ? cached.get().state() : getInitial.get();
+
+    for (var event : readResult.events()) {
+      state = evolve.apply(state, (Event) event);
+    }
+
+    if (readResult.currentStreamPosition() > 0)
+      cache.put(streamName, state, readResult.currentStreamPosition());
+
+    return new StreamAggregationResult<>(readResult.currentStreamPosition(), state);
+  }
+
+  @Override
+  public <State, Event> AppendResult getAndUpdate(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName,
+    Long expectedStreamPosition,
+    Function<State, List<Event>> handle
+  ) {
+    return getAndUpdate(getInitial, evolve, streamName, expectedStreamPosition, handle, 0);
+  }
+
+  @Override
+  public <State, Event> AppendResult getAndUpdate(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName,
+    Function<State, List<Event>> handle
+  ) {
+    return getAndUpdate(getInitial, evolve, streamName, null, handle, maxRetries);
+  }
+
+  private <State, Event> AppendResult getAndUpdate(
+    Supplier<State> getInitial,
+    BiFunction<State, Event, State> evolve,
+    StreamName streamName,
+    Long expectedStreamPosition,
+    Function<State, List<Event>> handle,
+    int retriesLeft
+  ) {
+    var aggregationResult = aggregateStream(getInitial, evolve, streamName);
+
+    var events = handle.apply(aggregationResult.state());
+
+    if (events.isEmpty()) {
+      return new AppendResult(aggregationResult.currentStreamPosition());
+    }
+
+    AppendResult appendResult;
+    try {
+      appendResult = eventStore.appendToStream(
+        streamName,
+        expectedStreamPosition != null ? expectedStreamPosition : aggregationResult.currentStreamPosition(),
+        new ArrayList<>(events)
+      );
+    } catch (InvalidExpectedStreamPositionException e) {
+      cache.invalidate(streamName);
+
+      if (retriesLeft <= 0)
+        throw e;
+
+      return getAndUpdate(getInitial, evolve, streamName, expectedStreamPosition, handle, retriesLeft - 1);
+    }
+
+    var state = aggregationResult.state();
+    for (var event : events) {
+      state = evolve.apply(state, event);
+    }
+    cache.put(streamName, state, appendResult.nextExpectedStreamPosition());
+
+    return appendResult;
+  }
+}
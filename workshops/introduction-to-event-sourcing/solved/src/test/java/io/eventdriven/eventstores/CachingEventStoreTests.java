@@ -0,0 +1,71 @@
+package io.eventdriven.eventstores;
+
+import com.eventstore.dbclient.EventStoreDBClient;
+import com.eventstore.dbclient.EventStoreDBConnectionString;
+import io.eventdriven.eventstores.inmemory.InMemoryEventStore;
+import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import io.eventdriven.introductiontoeventsourcing.e08_optimistic_concurrency.esdb.core.eventstore.EsdbEventStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingEventStoreTests {
+  @Test
+  public void aggregateStream_ShouldApplyOnlyNewEvents_OverInMemoryStore() {
+    var eventStore = new InMemoryEventStore();
+
+    aggregateStream_ShouldApplyOnlyNewEvents(eventStore, 2L);
+  }
+
+  @Test
+  public void aggregateStream_ShouldApplyOnlyNewEvents_OverEsdbStore() throws Exception {
+    var client = EventStoreDBClient.create(EventStoreDBConnectionString.parseOrThrow("esdb://localhost:2113?tls=false"));
+
+    try {
+      var eventStore = new EsdbEventStore(client, JsonEventSerializer.mapper);
+
+      // ESDB positions are revisions of the last event
+      aggregateStream_ShouldApplyOnlyNewEvents(eventStore, 1L);
+    } finally {
+      client.shutdown().get();
+    }
+  }
+
+  private static void aggregateStream_ShouldApplyOnlyNewEvents(EventStore eventStore, long positionAfterTwoEvents) {
+    var cachingEventStore = new CachingEventStore(eventStore, new AggregateCache(AggregateCache.Settings.DEFAULT));
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2);
+
+    eventStore.appendToStream(streamName, List.of(bankAccountCreated, depositRecorded));
+
+    // caches state at the current position
+    var cached = cachingEventStore.<List<Object>, Object>aggregateStream(ArrayList::new, CachingEventStoreTests::evolve, streamName);
+    assertEquals(List.of(bankAccountCreated, depositRecorded), cached.state());
+
+    // appended bypassing the cache, e.g. by another node
+    eventStore.appendToStream(streamName, positionAfterTwoEvents, List.of(cashWithdrawn));
+
+    var caughtUp = cachingEventStore.<List<Object>, Object>aggregateStream(ArrayList::new, CachingEventStoreTests::evolve, streamName);
+    assertEquals(List.of(bankAccountCreated, depositRecorded, cashWithdrawn), caughtUp.state());
+  }
+
+  private static List<Object> evolve(List<Object> events, Object event) {
+    var result = new ArrayList<>(events);
+    result.add(event);
+    return result;
+  }
+}
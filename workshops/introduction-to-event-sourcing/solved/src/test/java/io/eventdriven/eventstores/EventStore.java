@@ -26,6 +26,22 @@ public interface EventStore {
 
   ReadStreamResult readStream(StreamName streamName);
 
+  /**
+   * Reads only events after the given stream position, e.g. to catch up state known at that position.
+   * Position has to be the one returned by this store when reading or appending.
+   * By default, it reads the whole stream and skips `afterStreamPosition` events, so it assumes
+   * that position is the number of events in the stream. Stores using other positions override it.
+   */
+  default ReadStreamResult readStreamAfter(StreamName streamName, long afterStreamPosition) {
+    var readResult = readStream(streamName);
+    var events = readResult.events();
+
+    return new ReadStreamResult(
+      readResult.currentStreamPosition(),
+      events.subList((int) Math.min(afterStreamPosition, events.size()), events.size())
+    );
+  }
+
   default <State, Event> StreamAggregationResult<State> aggregateStream(
     Supplier<State> getInitial,
     BiFunction<State, Event, State> evolve,
@@ -0,0 +1,68 @@
+package io.eventdriven.eventstores;
+
+import io.eventdriven.eventstores.EventStore.AppendResult;
+import io.eventdriven.eventstores.EventStore.ReadStreamResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls of a blocking (e.g. JDBC) event store on virtual threads, so waiting for
+ * the database doesn't hold a platform thread and many commands can be in flight at once.
+ * <p>
+ * Number of calls running at once is bounded, the rest wait on a semaphore, which parks only
+ * virtual threads. Store has to be safe for concurrent use, so for a store with a single
+ * connection (like PostgreSQLEventStore) the limit should be 1.
+ */
+public class VirtualThreadAsyncEventStore implements AsyncEventStore, AutoCloseable {
+  private final EventStore eventStore;
+  private final Semaphore permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public VirtualThreadAsyncEventStore(EventStore eventStore, int maxConcurrentCalls) {
+    if (maxConcurrentCalls < 1) {
+      throw new IllegalArgumentException("Max concurrent calls must be positive");
+    }
+    this.eventStore = eventStore;
+    this.permits = new Semaphore(maxConcurrentCalls, true);
+  }
+
+  @Override
+  public CompletableFuture<AppendResult> appendToStream(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events
+  ) {
+    return run(() -> eventStore.appendToStream(streamName, expectedStreamPosition, events));
+  }
+
+  @Override
+  public CompletableFuture<ReadStreamResult> readStream(StreamName streamName) {
+    return run(() -> eventStore.readStream(streamName));
+  }
+
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  private <Result> CompletableFuture<Result> run(Supplier<Result> call) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      try {
+        return call.get();
+      } finally {
+        permits.release();
+      }
+    }, executor);
+  }
+}
@@ -0,0 +1,15 @@
+package io.eventdriven.eventstores.inmemory;
+
+import io.eventdriven.eventstores.StreamName;
+
+/**
+ * @param streamPosition position of the event in its stream, starting from 1
+ * @param logPosition    position of the event in the global log of all streams, starting from 1
+ */
+public record EventEnvelope(
+  Object data,
+  StreamName streamName,
+  long streamPosition,
+  long logPosition
+) {
+}
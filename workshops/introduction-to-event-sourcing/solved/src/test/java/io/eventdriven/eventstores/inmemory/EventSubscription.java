@@ -0,0 +1,112 @@
+package io.eventdriven.eventstores.inmemory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events from the global log of {@link InMemoryEventStore} to the handler, in order.
+ * Catches up from the given position and then waits for new appends.
+ * Position isn't stored, the handler can track {@link EventEnvelope#logPosition()} to resume later.
+ * <p>
+ * If the handler throws, the same event is delivered again after a while, up to
+ * {@value #maxHandlerAttempts} times. If it still fails, or the subscription falls behind the events
+ * retained by the store, it stops, see {@link #failure()}.
+ */
+public class EventSubscription implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(EventSubscription.class);
+  private static final long pollingIntervalMillis = 100;
+  private static final int maxHandlerAttempts = 10;
+
+  private final InMemoryEventStore eventStore;
+  private final Consumer<EventEnvelope> handler;
+  private final AtomicBoolean running = new AtomicBoolean(true);
+  private volatile long position;
+  private volatile RuntimeException failure;
+  private Thread thread;
+
+  EventSubscription(InMemoryEventStore eventStore, long afterLogPosition, Consumer<EventEnvelope> handler) {
+    this.eventStore = eventStore;
+    this.position = afterLogPosition;
+    this.handler = handler;
+  }
+
+  void start() {
+    thread = Thread.ofVirtual().name("in-memory-subscription").start(this::subscribe);
+  }
+
+  /**
+   * Log position of the last handled event.
+   */
+  public long position() {
+    return position;
+  }
+
+  /**
+   * Error that stopped the subscription, null while it's running.
+   */
+  public RuntimeException failure() {
+    return failure;
+  }
+
+  private void subscribe() {
+    var failedAttempts = 0;
+    try {
+      while (running.get()) {
+        var published = eventStore.currentLogPosition();
+
+        if (position >= published) {
+          eventStore.awaitEventsAfter(position, pollingIntervalMillis);
+          continue;
+        }
+
+        EventEnvelope event;
+        try {
+          event = eventStore.readFromLog(position + 1);
+        } catch (IllegalStateException e) {
+          failure = e;
+          return;
+        }
+
+        // positions of failed appends are published empty
+        if (event == null) {
+          position++;
+          continue;
+        }
+
+        try {
+          handler.accept(event);
+          position = event.logPosition();
+          failedAttempts = 0;
+        } catch (RuntimeException e) {
+          logger.warn(
+            "Subscription failed to handle event at log position %d, attempt %d of %d"
+              .formatted(event.logPosition(), ++failedAttempts, maxHandlerAttempts),
+            e
+          );
+
+          if (failedAttempts >= maxHandlerAttempts) {
+            failure = e;
+            return;
+          }
+
+          // retry the same event after a while, position was not moved
+          Thread.sleep(pollingIntervalMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    if (!running.compareAndSet(true, false))
+      return;
+
+    eventStore.wakeUpSubscriptions();
+    thread.join();
+  }
+}
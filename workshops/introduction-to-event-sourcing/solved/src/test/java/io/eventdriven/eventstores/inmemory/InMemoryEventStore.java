@@ -0,0 +1,340 @@
+package io.eventdriven.eventstores.inmemory;
+
+import io.eventdriven.eventstores.EventStore;
+import io.eventdriven.eventstores.StreamName;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe event store keeping events in memory, e.g. for tests, simulations or edge caches.
+ * <p>
+ * Each stream has its own lock, so appends to different streams don't block each other.
+ * Appended events get positions in the global log reserved from a single counter and are written
+ * to their slots without locking. They're published in the order of positions, so subscriptions
+ * reading the log never see gaps. Append waiting for the preceding ones to be published is parked.
+ * If it fails after reserving positions, they're published empty and subscriptions skip them.
+ * <p>
+ * Memory can be bounded with {@link Settings}. When streams keep more events than allowed,
+ * least recently used streams are evicted: their position is kept, so appends are still checked
+ * for conflicts, but reading them throws {@link StreamEvictedException}. The global log keeps
+ * only the latest events, subscriptions that fall behind it are stopped.
+ */
+public class InMemoryEventStore implements EventStore {
+  private static final int SEGMENT_BITS = 12;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+  private final Settings settings;
+  private final ConcurrentHashMap<StreamName, Stream> streams = new ConcurrentHashMap<>();
+  private final AtomicLong retainedStreamEvents = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  // global log split into fixed size segments, so it can grow and be trimmed without copying
+  private final ConcurrentHashMap<Long, AtomicReferenceArray<EventEnvelope>> logSegments = new ConcurrentHashMap<>();
+  private final AtomicLong reservedLogPosition = new AtomicLong();
+  private final AtomicLong publishedLogPosition = new AtomicLong();
+  private volatile long firstRetainedLogPosition = 1;
+
+  private final ReentrantLock newEventsLock = new ReentrantLock();
+  private final Condition newEvents = newEventsLock.newCondition();
+  private final Condition precedingPublished = newEventsLock.newCondition();
+  private final AtomicInteger waitingSubscriptions = new AtomicInteger();
+
+  /**
+   * @param maxStreamEvents number of events kept for reading streams, above it streams are evicted
+   * @param maxLogEvents    number of latest events kept in the global log for subscriptions
+   */
+  public record Settings(long maxStreamEvents, long maxLogEvents) {
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+    public static final Settings DEFAULT = new Settings(UNBOUNDED, UNBOUNDED);
+  }
+
+  public InMemoryEventStore() {
+    this(Settings.DEFAULT);
+  }
+
+  public InMemoryEventStore(Settings settings) {
+    if (settings.maxStreamEvents() < 1 || settings.maxLogEvents() < 1) {
+      throw new IllegalArgumentException("Memory limits must be positive");
+    }
+    this.settings = settings;
+  }
+
+  @Override
+  public void init() {
+  }
+
+  @Override
+  public AppendResult appendToStream(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events
+  ) {
+    var stream = streams.computeIfAbsent(streamName, _ -> new Stream());
+    long nextStreamPosition;
+    boolean retained;
+
+    stream.lock.lock();
+    try {
+      if (expectedStreamPosition != null && stream.position != expectedStreamPosition)
+        throw new InvalidExpectedStreamPositionException(streamName.toString(), expectedStreamPosition);
+
+      var firstLogPosition = reservedLogPosition.getAndAdd(events.size()) + 1;
+      var lastLogPosition = firstLogPosition - 1 + events.size();
+
+      // reserved positions are always published, otherwise all following appends would wait forever
+      try {
+        for (var i = 0; i < events.size(); i++) {
+          writeToLog(new EventEnvelope(events.get(i), streamName, stream.position + i + 1, firstLogPosition + i));
+        }
+      } catch (RuntimeException | Error e) {
+        clearLog(firstLogPosition, lastLogPosition);
+        throw e;
+      } finally {
+        publish(firstLogPosition - 1, lastLogPosition);
+      }
+
+      if (stream.events != null)
+        stream.events.addAll(events);
+
+      stream.position += events.size();
+      stream.lastAccessed = System.nanoTime();
+      nextStreamPosition = stream.position;
+      retained = stream.events != null;
+    } finally {
+      stream.lock.unlock();
+    }
+
+    if (retained && retainedStreamEvents.addAndGet(events.size()) > settings.maxStreamEvents())
+      evictStreams();
+
+    return new AppendResult(nextStreamPosition);
+  }
+
+  @Override
+  public ReadStreamResult readStream(StreamName streamName) {
+    return readStreamAfter(streamName, 0);
+  }
+
+  @Override
+  public ReadStreamResult readStreamAfter(StreamName streamName, long afterStreamPosition) {
+    var stream = streams.get(streamName);
+
+    if (stream == null)
+      return new ReadStreamResult(0, List.of());
+
+    stream.lock.lock();
+    try {
+      if (stream.events == null)
+        throw new StreamEvictedException(streamName.toString());
+
+      stream.lastAccessed = System.nanoTime();
+
+      var from = (int) Math.min(afterStreamPosition, stream.events.size());
+
+      return new ReadStreamResult(stream.position, List.copyOf(stream.events.subList(from, stream.events.size())));
+    } finally {
+      stream.lock.unlock();
+    }
+  }
+
+  /**
+   * Position of the last event visible in the global log.
+   */
+  public long currentLogPosition() {
+    return publishedLogPosition.get();
+  }
+
+  /**
+   * Starts subscription to the global log, running on a virtual thread.
+   * Handler is called sequentially, in the log order.
+   *
+   * @param afterLogPosition position of the last already handled event, 0 to start from the beginning
+   */
+  public EventSubscription subscribe(long afterLogPosition, Consumer<EventEnvelope> handler) {
+    var subscription = new EventSubscription(this, afterLogPosition, handler);
+
+    subscription.start();
+
+    return subscription;
+  }
+
+  /**
+   * Returns event at the given position, null if its append failed, or throws if it's no longer retained.
+   */
+  EventEnvelope readFromLog(long logPosition) {
+    if (logPosition < firstRetainedLogPosition)
+      throw new IllegalStateException("Event at log position %d is no longer retained".formatted(logPosition));
+
+    var index = logPosition - 1;
+    var segment = logSegments.get(index >> SEGMENT_BITS);
+
+    if (segment == null)
+      throw new IllegalStateException("Event at log position %d is no longer retained".formatted(logPosition));
+
+    return segment.get((int) (index & (SEGMENT_SIZE - 1)));
+  }
+
+  /**
+   * Waits until events after the given position are published or the timeout passes.
+   */
+  void awaitEventsAfter(long logPosition, long timeoutMillis) throws InterruptedException {
+    waitingSubscriptions.incrementAndGet();
+    newEventsLock.lock();
+    try {
+      if (publishedLogPosition.get() <= logPosition)
+        newEvents.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    } finally {
+      newEventsLock.unlock();
+      waitingSubscriptions.decrementAndGet();
+    }
+  }
+
+  void wakeUpSubscriptions() {
+    newEventsLock.lock();
+    try {
+      newEvents.signalAll();
+    } finally {
+      newEventsLock.unlock();
+    }
+  }
+
+  private void writeToLog(EventEnvelope envelope) {
+    var index = envelope.logPosition() - 1;
+    var segment = logSegments.computeIfAbsent(
+      index >> SEGMENT_BITS,
+      _ -> new AtomicReferenceArray<>(SEGMENT_SIZE)
+    );
+
+    segment.set((int) (index & (SEGMENT_SIZE - 1)), envelope);
+  }
+
+  // clears slots of failed append, so its reserved positions are published empty
+  private void clearLog(long firstLogPosition, long lastLogPosition) {
+    for (var logPosition = firstLogPosition; logPosition <= lastLogPosition; logPosition++) {
+      var index = logPosition - 1;
+      var segment = logSegments.get(index >> SEGMENT_BITS);
+
+      if (segment != null)
+        segment.set((int) (index & (SEGMENT_SIZE - 1)), null);
+    }
+  }
+
+  /**
+   * Makes reserved positions visible once all the preceding ones are published.
+   * Appends reserve and write their positions without holding any shared lock, so the wait is short,
+   * but the thread is parked, as the preceding append may be preempted.
+   */
+  private void publish(long afterLogPosition, long lastLogPosition) {
+    newEventsLock.lock();
+    try {
+      // not interruptible, skipping the wait would block all following appends
+      while (publishedLogPosition.get() != afterLogPosition) {
+        precedingPublished.awaitUninterruptibly();
+      }
+
+      // trimmed before publishing, so the next append can't trim concurrently
+      if (lastLogPosition - firstRetainedLogPosition >= settings.maxLogEvents())
+        trimLog(lastLogPosition);
+
+      publishedLogPosition.set(lastLogPosition);
+
+      precedingPublished.signalAll();
+
+      if (waitingSubscriptions.get() > 0)
+        newEvents.signalAll();
+    } finally {
+      newEventsLock.unlock();
+    }
+  }
+
+  // drops whole segments that are older than the retained window
+  private void trimLog(long lastLogPosition) {
+    var firstRetainedSegment = (lastLogPosition - settings.maxLogEvents()) >> SEGMENT_BITS;
+    var firstSegment = (firstRetainedLogPosition - 1) >> SEGMENT_BITS;
+
+    if (firstSegment >= firstRetainedSegment)
+      return;
+
+    firstRetainedLogPosition = (firstRetainedSegment << SEGMENT_BITS) + 1;
+
+    for (var segment = firstSegment; segment < firstRetainedSegment; segment++) {
+      logSegments.remove(segment);
+    }
+  }
+
+  /**
+   * Evicts least recently used streams until they keep 90% of allowed events,
+   * so eviction doesn't run again on each following append.
+   */
+  private void evictStreams() {
+    if (!evictionLock.tryLock())
+      return;
+
+    try {
+      var lowWatermark = settings.maxStreamEvents() - settings.maxStreamEvents() / 10;
+
+      if (retainedStreamEvents.get() <= settings.maxStreamEvents())
+        return;
+
+      // access times are captured first, as they change while sorting
+      var candidates = new ArrayList<EvictionCandidate>(streams.size());
+      streams.values().forEach(stream -> candidates.add(new EvictionCandidate(stream, stream.lastAccessed)));
+      candidates.sort(Comparator.comparingLong(EvictionCandidate::lastAccessed));
+
+      for (var candidate : candidates) {
+        var stream = candidate.stream();
+
+        if (retainedStreamEvents.get() <= lowWatermark)
+          break;
+
+        stream.lock.lock();
+        try {
+          if (stream.events == null)
+            continue;
+
+          retainedStreamEvents.addAndGet(-stream.events.size());
+          stream.events = null;
+        } finally {
+          stream.lock.unlock();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static final class Stream {
+    private final ReentrantLock lock = new ReentrantLock();
+    // null when evicted
+    private List<Object> events = new ArrayList<>();
+    private long position;
+    private volatile long lastAccessed = System.nanoTime();
+  }
+
+  private record EvictionCandidate(Stream stream, long lastAccessed) {
+  }
+
+  public static class StreamEvictedException extends RuntimeException {
+    private final String streamName;
+
+    public StreamEvictedException(String streamName) {
+      super(String.format("Events of stream %s were evicted from memory", streamName));
+
+      this.streamName = streamName;
+    }
+
+    public String getStreamName() {
+      return this.streamName;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package io.eventdriven.eventstores.inmemory;
+
+import io.eventdriven.eventstores.EventStore;
+import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.DepositRecorded;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryEventStoreTests {
+  @Test
+  public void concurrentAppends_ToDifferentStreams_AreAllKeptInGaplessLog() throws Exception {
+    var eventStore = new InMemoryEventStore();
+    var streams = IntStream.range(0, 16).mapToObj(_ -> StreamName.randomOf(BankAccount.class)).toList();
+    var appendsPerStream = 200;
+
+    var received = new CopyOnWriteArrayList<EventEnvelope>();
+    try (var subscription = eventStore.subscribe(0, received::add);
+         var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+      var appends = new ArrayList<Future<?>>();
+      for (var streamName : streams) {
+        appends.add(executor.submit(() -> {
+          for (var version = 0; version < appendsPerStream; version++) {
+            eventStore.appendToStream(streamName, (long) version, List.of(deposit(streamName, version)));
+          }
+        }));
+      }
+      for (var append : appends) {
+        append.get();
+      }
+
+      var expectedEvents = streams.size() * appendsPerStream;
+      assertEquals(expectedEvents, eventStore.currentLogPosition());
+
+      awaitUntil(() -> subscription.position() == expectedEvents);
+    }
+
+    // log positions have no gaps and each stream is delivered in its order
+    var lastStreamPositions = new HashMap<StreamName, Long>();
+    for (var i = 0; i < received.size(); i++) {
+      var event = received.get(i);
+      assertEquals(i + 1, event.logPosition());
+
+      var previous = lastStreamPositions.getOrDefault(event.streamName(), 0L);
+      assertEquals(previous + 1, event.streamPosition());
+      lastStreamPositions.put(event.streamName(), event.streamPosition());
+    }
+
+    for (var streamName : streams) {
+      var result = eventStore.readStream(streamName);
+      assertEquals(appendsPerStream, result.currentStreamPosition());
+      assertEquals(appendsPerStream, result.events().size());
+    }
+  }
+
+  @Test
+  public void concurrentAppends_ToTheSameStream_AcceptOnlyOneWriterPerPosition() throws Exception {
+    var eventStore = new InMemoryEventStore();
+    var streamName = StreamName.randomOf(BankAccount.class);
+    var succeeded = new AtomicInteger();
+
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var appends = IntStream.range(0, 32)
+        .mapToObj(_ -> executor.submit(() -> {
+          try {
+            eventStore.appendToStream(streamName, 0L, List.of(deposit(streamName, 0)));
+            succeeded.incrementAndGet();
+          } catch (EventStore.InvalidExpectedStreamPositionException _) {
+          }
+        }))
+        .toList();
+
+      for (var append : appends) {
+        append.get();
+      }
+    }
+
+    assertEquals(1, succeeded.get());
+    assertEquals(1, eventStore.readStream(streamName).events().size());
+  }
+
+  @Test
+  public void leastRecentlyUsedStreams_AreEvicted_WhenMemoryIsBounded() {
+    var eventStore = new InMemoryEventStore(new InMemoryEventStore.Settings(100, 1_000));
+    var streams = IntStream.range(0, 20).mapToObj(_ -> StreamName.randomOf(BankAccount.class)).toList();
+
+    for (var streamName : streams) {
+      eventStore.appendToStream(streamName, List.of(
+        deposit(streamName, 0), deposit(streamName, 1), deposit(streamName, 2),
+        deposit(streamName, 3), deposit(streamName, 4), deposit(streamName, 5)
+      ));
+    }
+
+    assertThrows(InMemoryEventStore.StreamEvictedException.class, () -> eventStore.readStream(streams.getFirst()));
+    assertEquals(6, eventStore.readStream(streams.getLast()).events().size());
+
+    // position of evicted stream is kept, so conflicts are still detected
+    var evicted = streams.getFirst();
+    assertThrows(
+      EventStore.InvalidExpectedStreamPositionException.class,
+      () -> eventStore.appendToStream(evicted, 0L, List.of(deposit(evicted, 6)))
+    );
+    assertEquals(7, eventStore.appendToStream(evicted, 6L, List.of(deposit(evicted, 6))).nextExpectedStreamPosition());
+  }
+
+  @Test
+  public void subscription_Stops_WhenItFallsBehindRetainedLog() throws Exception {
+    var eventStore = new InMemoryEventStore(new InMemoryEventStore.Settings(Long.MAX_VALUE, 10));
+    var streamName = StreamName.randomOf(BankAccount.class);
+
+    for (var version = 0; version < 10_000; version++) {
+      eventStore.appendToStream(streamName, List.of(deposit(streamName, version)));
+    }
+
+    var handled = new ConcurrentHashMap<Long, Boolean>();
+    try (var subscription = eventStore.subscribe(0, event -> handled.put(event.logPosition(), true))) {
+      awaitUntil(() -> subscription.failure() != null);
+
+      assertTrue(handled.isEmpty());
+    }
+  }
+
+  @Test
+  public void subscription_Stops_WhenHandlerKeepsFailing() throws Exception {
+    var eventStore = new InMemoryEventStore();
+    var streamName = StreamName.randomOf(BankAccount.class);
+
+    eventStore.appendToStream(streamName, List.of(deposit(streamName, 0), deposit(streamName, 1)));
+
+    var handlerFailure = new IllegalStateException("Handler failed");
+    try (var subscription = eventStore.subscribe(0, _ -> {
+      throw handlerFailure;
+    })) {
+      awaitUntil(() -> subscription.failure() != null);
+
+      assertSame(handlerFailure, subscription.failure());
+      assertEquals(0, subscription.position());
+    }
+  }
+
+  private static DepositRecorded deposit(StreamName streamName, long version) {
+    return new DepositRecorded(streamName.streamId(), 10, "cashier", LocalDateTime.now(), version);
+  }
+
+  private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() > deadline)
+        fail("Condition was not met in time");
+
+      Thread.sleep(10);
+    }
+  }
+}
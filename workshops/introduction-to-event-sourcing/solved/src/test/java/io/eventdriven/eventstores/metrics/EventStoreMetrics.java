@@ -0,0 +1,49 @@
+package io.eventdriven.eventstores.metrics;
+
+/**
+ * Receives measurements of event store operations.
+ * <p>
+ * Methods take only primitives and the stream type (already held by the store), so stores can call
+ * them on every operation without allocating. Implementations should keep it that way, e.g. resolve
+ * meters once per stream type instead of building tags on each call.
+ */
+public interface EventStoreMetrics {
+  /**
+   * Passed as size when the store doesn't know the serialized size without extra work.
+   */
+  long UNKNOWN_SIZE = -1;
+
+  EventStoreMetrics NOOP = new EventStoreMetrics() {
+  };
+
+  /**
+   * @param events number of appended events
+   * @param bytes  size of serialized events data or {@link #UNKNOWN_SIZE}
+   */
+  default void recordAppend(String streamType, int events, long bytes, long durationNanos) {
+  }
+
+  /**
+   * Append rejected as the stream was at a different position than expected.
+   */
+  default void recordAppendConflict(String streamType) {
+  }
+
+  /**
+   * @param streamLength number of events read
+   */
+  default void recordRead(String streamType, int streamLength, long durationNanos) {
+  }
+
+  /**
+   * @param bytes size of the single serialized event or {@link #UNKNOWN_SIZE}
+   */
+  default void recordSerialization(String streamType, long bytes, long durationNanos) {
+  }
+
+  /**
+   * @param bytes size of the single serialized event or {@link #UNKNOWN_SIZE}
+   */
+  default void recordDeserialization(String streamType, long bytes, long durationNanos) {
+  }
+}
@@ -0,0 +1,61 @@
+package io.eventdriven.eventstores.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MicrometerEventStoreMetricsTests {
+  private SimpleMeterRegistry registry;
+  private MicrometerEventStoreMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    registry = new SimpleMeterRegistry();
+    metrics = new MicrometerEventStoreMetrics(registry);
+  }
+
+  @Test
+  public void recordsAppendsPerStreamType() {
+    metrics.recordAppend("shopping_cart", 2, 300, TimeUnit.MILLISECONDS.toNanos(3));
+    metrics.recordAppend("shopping_cart", 1, 100, TimeUnit.MILLISECONDS.toNanos(1));
+    metrics.recordAppend("bank_account", 1, 50, TimeUnit.MILLISECONDS.toNanos(1));
+
+    var appendDuration = registry.get("eventstore.append.duration").tag("stream.type", "shopping_cart").timer();
+    assertEquals(2, appendDuration.count());
+    assertEquals(4, appendDuration.totalTime(TimeUnit.MILLISECONDS));
+
+    var appendEvents = registry.get("eventstore.append.events").tag("stream.type", "shopping_cart").summary();
+    assertEquals(3, appendEvents.totalAmount());
+
+    var appendBytes = registry.get("eventstore.append.bytes").tag("stream.type", "bank_account").summary();
+    assertEquals(50, appendBytes.totalAmount());
+  }
+
+  @Test
+  public void skipsUnknownSizes() {
+    metrics.recordAppend("shopping_cart", 1, EventStoreMetrics.UNKNOWN_SIZE, 1_000);
+    metrics.recordSerialization("shopping_cart", EventStoreMetrics.UNKNOWN_SIZE, 1_000);
+
+    assertEquals(0, registry.get("eventstore.append.bytes").summary().count());
+    assertEquals(0, registry.get("eventstore.serialization.bytes").summary().count());
+    assertEquals(1, registry.get("eventstore.serialization.duration").timer().count());
+  }
+
+  @Test
+  public void recordsConflictsAndStreamLengths() {
+    metrics.recordAppendConflict("shopping_cart");
+    metrics.recordAppendConflict("shopping_cart");
+    metrics.recordRead("shopping_cart", 10, 1_000);
+    metrics.recordRead("shopping_cart", 30, 1_000);
+
+    assertEquals(2, registry.get("eventstore.append.conflicts").counter().count());
+
+    var streamLength = registry.get("eventstore.read.stream.length").summary();
+    assertEquals(2, streamLength.count());
+    assertEquals(30, streamLength.max());
+  }
+}
@@ -2,6 +2,7 @@ package io.eventdriven.eventstores.mongodb;
 
 import com.mongodb.client.MongoClient;
 import io.eventdriven.eventstores.EventStore;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
 import io.eventdriven.eventstores.mongodb.event_as_document.MongoDBEventStoreWithEventAsDocument;
 import io.eventdriven.eventstores.mongodb.stream_as_document.MongoDBEventStoreWithStreamAsDocument;
 import io.eventdriven.eventstores.mongodb.subscriptions.EventSubscription;
@@ -19,13 +20,22 @@ public interface MongoDBEventStore extends EventStore {
     Storage storage,
     MongoClient mongoClient,
     String databaseName
+  ) {
+    return with(storage, mongoClient, databaseName, EventStoreMetrics.NOOP);
+  }
+
+  static MongoDBEventStore with(
+    Storage storage,
+    MongoClient mongoClient,
+    String databaseName,
+    EventStoreMetrics metrics
   ) {
     switch (storage) {
       case EventAsDocument -> {
-        return new MongoDBEventStoreWithEventAsDocument(mongoClient, databaseName);
+        return new MongoDBEventStoreWithEventAsDocument(mongoClient, databaseName, metrics);
       }
       case StoreAsDocument -> {
-        return new MongoDBEventStoreWithStreamAsDocument(mongoClient, databaseName);
+        return new MongoDBEventStoreWithStreamAsDocument(mongoClient, databaseName, metrics);
       }
       default ->
         throw new IllegalStateException("Unexpected value: " + storage);
@@ -6,6 +6,7 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.*;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
 import io.eventdriven.eventstores.mongodb.MongoDBEventStore;
 import io.eventdriven.eventstores.mongodb.event_as_document.streams.EventStream;
 import io.eventdriven.eventstores.mongodb.events.EventDataCodec;
@@ -30,9 +31,15 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
   private final MongoDatabase database;
   private final EventDataCodec eventDataCodec;
   private final EventTypeMapper eventTypeMapper;
+  private final EventStoreMetrics metrics;
 
   public MongoDBEventStoreWithEventAsDocument(MongoClient mongoClient, String databaseName) {
+    this(mongoClient, databaseName, EventStoreMetrics.NOOP);
+  }
+
+  public MongoDBEventStoreWithEventAsDocument(MongoClient mongoClient, String databaseName, EventStoreMetrics metrics) {
     this.mongoClient = mongoClient;
+    this.metrics = metrics;
     this.mongoClient.getDatabase(databaseName).drop();
     database = this.mongoClient.getDatabase(databaseName);
     eventTypeMapper = EventTypeMapper.DEFAULT;
@@ -59,6 +66,21 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
 
   @Override
   public AppendResult appendToStream(StreamName streamName, Long expectedStreamPosition, List<Object> events) {
+    var start = System.nanoTime();
+    try {
+      var result = appendInTransaction(streamName, expectedStreamPosition, events);
+
+      // events are encoded to BSON by the driver, their size isn't known without encoding them twice
+      metrics.recordAppend(streamName.streamType(), events.size(), EventStoreMetrics.UNKNOWN_SIZE, System.nanoTime() - start);
+
+      return result;
+    } catch (InvalidExpectedStreamPositionException e) {
+      metrics.recordAppendConflict(streamName.streamType());
+      throw e;
+    }
+  }
+
+  private AppendResult appendInTransaction(StreamName streamName, Long expectedStreamPosition, List<Object> events) {
     var streamType = streamName.streamType();
     var streamId = streamName.streamId();
     var streamNameValue = streamName.toString();
@@ -85,7 +107,8 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
         .mapToObj(index -> {
           var event = events.get(index);
 
-          return EventEnvelope.of(
+          var serializationStart = System.nanoTime();
+          var envelope = EventEnvelope.of(
             event,
             new EventMetadata(
               UUID.randomUUID().toString(),
@@ -95,6 +118,9 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
             ),
             eventDataCodec
           );
+          metrics.recordSerialization(streamType, EventStoreMetrics.UNKNOWN_SIZE, System.nanoTime() - serializationStart);
+
+          return envelope;
         }).toList();
 
       // Append events upserting the document
@@ -134,6 +160,7 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
 
   @Override
   public ReadStreamResult readStream(StreamName streamName) {
+    var start = System.nanoTime();
     var eventsCollection = eventsCollection();
 
     var stream = streamsCollection().find(Filters.eq("streamName", streamName.toString()))
@@ -148,9 +175,20 @@ public class MongoDBEventStoreWithEventAsDocument implements MongoDBEventStore {
       .find(Filters.eq("metadata.streamName", streamName.toString()))
       .into(new ArrayList<>())
       .stream()
-      .map(eventEnvelope -> eventEnvelope.getEvent(eventDataCodec))
+      .map(eventEnvelope -> {
+        var deserializationStart = System.nanoTime();
+        var event = eventEnvelope.getEvent(eventDataCodec);
+        metrics.recordDeserialization(
+          streamName.streamType(),
+          EventStoreMetrics.UNKNOWN_SIZE,
+          System.nanoTime() - deserializationStart
+        );
+        return event;
+      })
       .toList();
 
+    metrics.recordRead(streamName.streamType(), events.size(), System.nanoTime() - start);
+
     return new ReadStreamResult(stream.metadata().streamPosition(), events);
   }
 
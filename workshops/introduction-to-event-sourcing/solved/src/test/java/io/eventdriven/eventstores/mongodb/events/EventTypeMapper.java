@@ -1,8 +1,8 @@
 package io.eventdriven.eventstores.mongodb.events;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface EventTypeMapper {
   String toName(Class eventType);
@@ -10,17 +10,19 @@ public interface EventTypeMapper {
   Optional<Class> toClass(String eventTypeName);
 
   EventTypeMapper DEFAULT = new EventTypeMapper() {
-    private final Map<String, Optional<Class>> typeMap = new HashMap<>();
-    private final Map<Class, String> typeNameMap = new HashMap<>();
+    // shared by subscription and request threads, so it has to be thread-safe
+    private final Map<String, Optional<Class>> typeMap = new ConcurrentHashMap<>();
 
     public String toName(Class eventType) {
-      return typeNameMap.computeIfAbsent(
-        eventType,
-        c -> c.getTypeName()
-      );
+      return eventType.getTypeName();
     }
 
     public Optional<Class> toClass(String eventTypeName) {
+      var cached = typeMap.get(eventTypeName);
+
+      if (cached != null)
+        return cached;
+
       return typeMap.computeIfAbsent(
         eventTypeName,
         c -> {
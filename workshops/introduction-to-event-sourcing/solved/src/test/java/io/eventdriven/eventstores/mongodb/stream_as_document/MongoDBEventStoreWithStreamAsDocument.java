@@ -6,6 +6,7 @@ import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.*;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
 import io.eventdriven.eventstores.mongodb.MongoDBEventStore;
 import io.eventdriven.eventstores.mongodb.events.EventDataCodec;
 import io.eventdriven.eventstores.mongodb.events.EventEnvelope;
@@ -34,10 +35,16 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
   private final EventDataCodec eventDataCodec;
   private final Codec<EventEnvelope> eventEnvelopeCodec;
   private final EventTypeMapper eventTypeMapper;
+  private final EventStoreMetrics metrics;
 
 
   public MongoDBEventStoreWithStreamAsDocument(MongoClient mongoClient, String databaseName) {
+    this(mongoClient, databaseName, EventStoreMetrics.NOOP);
+  }
+
+  public MongoDBEventStoreWithStreamAsDocument(MongoClient mongoClient, String databaseName, EventStoreMetrics metrics) {
     this.mongoClient = mongoClient;
+    this.metrics = metrics;
     database = this.mongoClient.getDatabase(databaseName);
     eventTypeMapper = EventTypeMapper.DEFAULT;
 
@@ -56,6 +63,21 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
 
   @Override
   public AppendResult appendToStream(StreamName streamName, Long expectedStreamPosition, List<Object> events) {
+    var start = System.nanoTime();
+    try {
+      var result = appendToStreamDocument(streamName, expectedStreamPosition, events);
+
+      // events are encoded to BSON by the driver, their size isn't known without encoding them twice
+      metrics.recordAppend(streamName.streamType(), events.size(), EventStoreMetrics.UNKNOWN_SIZE, System.nanoTime() - start);
+
+      return result;
+    } catch (InvalidExpectedStreamPositionException e) {
+      metrics.recordAppendConflict(streamName.streamType());
+      throw e;
+    }
+  }
+
+  private AppendResult appendToStreamDocument(StreamName streamName, Long expectedStreamPosition, List<Object> events) {
     var streamType = streamName.streamType();
     var streamId = streamName.streamId();
     var streamNameValue = streamName.toString();
@@ -80,7 +102,8 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
       .mapToObj(index -> {
         var event = events.get(index);
 
-        return EventEnvelope.of(
+        var serializationStart = System.nanoTime();
+        var envelope = EventEnvelope.of(
           event,
           new EventMetadata(
             UUID.randomUUID().toString(),
@@ -90,6 +113,9 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
           ),
           eventDataCodec
         );
+        metrics.recordSerialization(streamType, EventStoreMetrics.UNKNOWN_SIZE, System.nanoTime() - serializationStart);
+
+        return envelope;
       }).toList();
 
     // Append events upserting the document
@@ -123,6 +149,7 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
 
   @Override
   public ReadStreamResult readStream(StreamName streamName) {
+    var start = System.nanoTime();
     var streamType = streamName.streamType();
 
     // Resolve collection
@@ -138,9 +165,16 @@ public class MongoDBEventStoreWithStreamAsDocument implements MongoDBEventStore
     }
 
     var events = stream.events().stream()
-      .map(eventEnvelope -> eventEnvelope.getEvent(eventDataCodec))
+      .map(eventEnvelope -> {
+        var deserializationStart = System.nanoTime();
+        var event = eventEnvelope.getEvent(eventDataCodec);
+        metrics.recordDeserialization(streamType, EventStoreMetrics.UNKNOWN_SIZE, System.nanoTime() - deserializationStart);
+        return event;
+      })
       .toList();
 
+    metrics.recordRead(streamType, events.size(), System.nanoTime() - start);
+
     return new ReadStreamResult(stream.metadata().streamPosition(), events);
   }
 
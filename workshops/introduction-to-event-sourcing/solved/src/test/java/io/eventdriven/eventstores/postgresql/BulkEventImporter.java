@@ -0,0 +1,394 @@
+package io.eventdriven.eventstores.postgresql;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.eventdriven.eventstores.EventTypeMapper;
+import io.eventdriven.eventstores.JsonEventSerializer;
+import io.eventdriven.eventstores.StreamName;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static io.eventdriven.eventstores.JsonEventSerializer.mapper;
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+
+/**
+ * Loads historical events (e.g. migrated from a legacy system) much faster than `append_to_stream`.
+ * <p>
+ * Events are read in chunks, streamed with `COPY` into a session-local staging table and moved
+ * to `events` with set-based statements, that compute `stream_position` per stream, take
+ * `global_position` in the source order and update `streams` once per stream in the chunk.
+ * <p>
+ * Each chunk is committed together with the import checkpoint (number of source events already
+ * imported). Running import with the same id again skips them, so it can be resumed after a crash
+ * from the same source. Source order is the order of events in streams and in the global log.
+ * <p>
+ * Optionally, the secondary index used by subscriptions is dropped for the import and rebuilt at
+ * the end. Validating stream positions against the events scans the whole log, so it's opt-in.
+ * Uses dedicated connection, closed together with the importer.
+ */
+public class BulkEventImporter implements AutoCloseable {
+  private final Connection dbConnection;
+  private final Settings settings;
+
+  /**
+   * @param chunkSize      number of source events committed in a single transaction
+   * @param rebuildIndexes whether to drop secondary indexes for the import and rebuild them at the end
+   * @param validate       whether to {@link #validate()} all streams after the import
+   */
+  public record Settings(int chunkSize, boolean rebuildIndexes, boolean validate) {
+    public static final Settings DEFAULT = new Settings(50_000, true, false);
+  }
+
+  public record ImportedEvent(
+    StreamName streamName,
+    String id,
+    String type,
+    String data,
+    String metadata,
+    OffsetDateTime created
+  ) {
+    public static ImportedEvent of(StreamName streamName, Object event) {
+      return of(streamName, event, null);
+    }
+
+    public static ImportedEvent of(StreamName streamName, Object event, OffsetDateTime created) {
+      return new ImportedEvent(
+        streamName,
+        UUID.randomUUID().toString(),
+        EventTypeMapper.toName(event.getClass()),
+        JsonEventSerializer.serialize(event),
+        "{}",
+        created
+      );
+    }
+  }
+
+  /**
+   * @param importedEvents events imported in this run
+   * @param skippedEvents  events skipped, as they were already imported by the previous run
+   * @param elapsed        duration of this run
+   */
+  public record ImportResult(long importedEvents, long skippedEvents, Duration elapsed) {
+    public double eventsPerSecond() {
+      var seconds = elapsed.toNanos() / 1_000_000_000.0;
+      return seconds == 0 ? 0 : importedEvents / seconds;
+    }
+
+    @Override
+    public String toString() {
+      return "ImportResult[imported=%d, skipped=%d, elapsed=%s, throughput=%.0f events/s]"
+        .formatted(importedEvents, skippedEvents, elapsed, eventsPerSecond());
+    }
+  }
+
+  public static class ImportValidationException extends RuntimeException {
+    public ImportValidationException(long inconsistentStreams) {
+      super("Stream positions of %d stream(s) don't match their events".formatted(inconsistentStreams));
+    }
+  }
+
+  public BulkEventImporter(Connection dbConnection, Settings settings) {
+    if (settings.chunkSize() < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive");
+    }
+    this.dbConnection = dbConnection;
+    this.settings = settings;
+  }
+
+  public ImportResult importEvents(String importId, Iterator<ImportedEvent> events) {
+    return importEvents(importId, events, _ -> {
+    });
+  }
+
+  /**
+   * @param onProgress called after each committed chunk with the totals of this run so far
+   */
+  public ImportResult importEvents(
+    String importId,
+    Iterator<ImportedEvent> events,
+    Consumer<ImportResult> onProgress
+  ) {
+    var start = System.nanoTime();
+
+    executeSql(dbConnection, createImportsTableSql);
+    executeSql(dbConnection, createStagingTableSql);
+
+    var sourcePosition = getImportedSourcePosition(importId);
+    var skipped = 0L;
+
+    while (skipped < sourcePosition && events.hasNext()) {
+      events.next();
+      skipped++;
+    }
+
+    if (settings.rebuildIndexes())
+      executeSql(dbConnection, dropSecondaryIndexesSql);
+
+    var imported = 0L;
+    var chunk = new ArrayList<ImportedEvent>(settings.chunkSize());
+
+    while (events.hasNext()) {
+      chunk.add(events.next());
+
+      if (chunk.size() == settings.chunkSize() || !events.hasNext()) {
+        importChunk(importId, sourcePosition, chunk);
+
+        sourcePosition += chunk.size();
+        imported += chunk.size();
+        chunk.clear();
+
+        onProgress.accept(new ImportResult(imported, skipped, Duration.ofNanos(System.nanoTime() - start)));
+      }
+    }
+
+    if (settings.rebuildIndexes())
+      executeSql(dbConnection, createSecondaryIndexesSql);
+
+    executeSql(dbConnection, "ANALYZE streams; ANALYZE events;");
+
+    if (settings.validate())
+      validate();
+
+    return new ImportResult(imported, skipped, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  /**
+   * Imports newline-delimited JSON, one event per line, e.g.:
+   * <pre>
+   * {"streamType":"bank_account","streamId":"1","type":"BankAccountOpened","data":{...},"created":"2024-01-01T00:00:00Z"}
+   * </pre>
+   * `id`, `metadata` and `created` are optional.
+   */
+  public ImportResult importNdjson(String importId, Path file, Consumer<ImportResult> onProgress) {
+    try (
+      var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+      var lines = mapper.readerFor(JsonNode.class).<JsonNode>readValues(reader)
+    ) {
+      var events = new Iterator<ImportedEvent>() {
+        @Override
+        public boolean hasNext() {
+          return lines.hasNext();
+        }
+
+        @Override
+        public ImportedEvent next() {
+          return toImportedEvent(lines.next());
+        }
+      };
+
+      return importEvents(importId, events, onProgress);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Checks that each stream position matches the last position of its events.
+   * Requires full scan of the events (also archived ones).
+   */
+  public void validate() {
+    var inconsistentStreams = querySingleSql(
+      dbConnection,
+      validateStreamPositionsSql,
+      rs -> getLong(rs, "inconsistent_streams")
+    );
+
+    if (inconsistentStreams > 0)
+      throw new ImportValidationException(inconsistentStreams);
+  }
+
+  @Override
+  public void close() {
+    try {
+      dbConnection.close();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private long getImportedSourcePosition(String importId) {
+    return querySql(
+      dbConnection,
+      "SELECT source_position FROM event_imports WHERE import_id = ?",
+      setStringParam(importId),
+      rs -> getLong(rs, "source_position")
+    ).stream().findFirst().orElse(0L);
+  }
+
+  private void importChunk(String importId, long sourcePosition, List<ImportedEvent> chunk) {
+    runInTransaction(dbConnection, connection -> {
+      copyToStaging(connection, sourcePosition, chunk);
+
+      executeSql(connection, createImportedStreamsSql);
+      executeSql(connection, insertImportedEventsSql);
+      executeSql(connection, updateImportedStreamsPositionsSql);
+      executeSql(connection, storeImportCheckpointSql, ps -> {
+        setStringParam(ps, 1, importId);
+        setLong(ps, 2, sourcePosition + chunk.size());
+      });
+      // staging table is cleared on commit
+      return null;
+    });
+  }
+
+  private static void copyToStaging(Connection connection, long sourcePosition, List<ImportedEvent> chunk) {
+    try (
+      var copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), copyToStagingSql, 1 << 16);
+      var writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8))
+    ) {
+      var ordinal = sourcePosition;
+
+      for (var event : chunk) {
+        writer.write(Long.toString(ordinal++));
+        writer.write(',');
+        writeCsvField(writer, event.streamName().streamId());
+        writer.write(',');
+        writeCsvField(writer, event.streamName().streamType());
+        writer.write(',');
+        writeCsvField(writer, event.id() != null ? event.id() : UUID.randomUUID().toString());
+        writer.write(',');
+        writeCsvField(writer, event.type());
+        writer.write(',');
+        writeCsvField(writer, event.data());
+        writer.write(',');
+        writeCsvField(writer, event.metadata() != null ? event.metadata() : "{}");
+        writer.write(',');
+        // unquoted empty value is NULL, defaulted to now()
+        if (event.created() != null)
+          writeCsvField(writer, event.created().toString());
+        writer.write('\n');
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeCsvField(Writer writer, String value) throws IOException {
+    writer.write('"');
+    writer.write(value.replace("\"", "\"\""));
+    writer.write('"');
+  }
+
+  private static ImportedEvent toImportedEvent(JsonNode line) {
+    return new ImportedEvent(
+      new StreamName(line.required("streamType").asText(), line.required("streamId").asText()),
+      line.hasNonNull("id") ? line.get("id").asText() : null,
+      line.required("type").asText(),
+      line.required("data").toString(),
+      line.hasNonNull("metadata") ? line.get("metadata").toString() : null,
+      line.hasNonNull("created") ? OffsetDateTime.parse(line.get("created").asText()) : null
+    );
+  }
+
+  private static final String createImportsTableSql = """
+    CREATE TABLE IF NOT EXISTS event_imports(
+        import_id        TEXT                      NOT NULL    PRIMARY KEY,
+        source_position  BIGINT                    NOT NULL,
+        updated          timestamp with time zone  NOT NULL    default (now())
+    );
+    """;
+
+  private static final String createStagingTableSql = """
+    CREATE TEMP TABLE IF NOT EXISTS events_import_staging(
+          ordinal          BIGINT                    NOT NULL,
+          stream_id        TEXT                      NOT NULL,
+          stream_type      TEXT                      NOT NULL,
+          id               TEXT                      NOT NULL,
+          type             TEXT                      NOT NULL,
+          data             JSONB                     NOT NULL,
+          metadata         JSONB                     NOT NULL,
+          created          timestamp with time zone  NULL
+    ) ON COMMIT DELETE ROWS;
+    """;
+
+  private static final String copyToStagingSql = """
+    COPY events_import_staging (ordinal, stream_id, stream_type, id, type, data, metadata, created)
+    FROM STDIN WITH (FORMAT csv)
+    """;
+
+  private static final String createImportedStreamsSql = """
+    INSERT INTO streams (id, type, stream_position)
+    SELECT DISTINCT ON (stream_id) stream_id, stream_type, 0
+    FROM events_import_staging
+    ORDER BY stream_id, ordinal
+    ON CONFLICT (id) DO NOTHING;
+
+    -- block regular appends to imported streams until the chunk is committed
+    SELECT 1 FROM streams
+    WHERE id IN (SELECT stream_id FROM events_import_staging)
+    ORDER BY id
+    FOR UPDATE;
+    """;
+
+  // positions are computed in the inner query, sequence values are taken in the source order
+  private static final String insertImportedEventsSql = """
+    INSERT INTO events
+        (id, data, metadata, stream_id, type, stream_position, global_position, created)
+    SELECT
+        id, data, metadata, stream_id, type, stream_position, nextval('global_event_position'), created
+    FROM (
+        SELECT
+            e.id, e.data, e.metadata, e.stream_id, e.type,
+            s.stream_position + row_number() OVER (PARTITION BY e.stream_id ORDER BY e.ordinal) AS stream_position,
+            coalesce(e.created, now()) AS created,
+            e.ordinal
+        FROM events_import_staging e
+        JOIN streams s ON s.id = e.stream_id
+        ORDER BY e.ordinal
+    ) ordered;
+    """;
+
+  private static final String updateImportedStreamsPositionsSql = """
+    UPDATE streams s
+        SET stream_position = s.stream_position + imported.events_count
+    FROM (
+        SELECT stream_id, count(*) AS events_count
+        FROM events_import_staging
+        GROUP BY stream_id
+    ) imported
+    WHERE s.id = imported.stream_id;
+    """;
+
+  private static final String storeImportCheckpointSql = """
+    INSERT INTO event_imports (import_id, source_position)
+    VALUES (?, ?)
+    ON CONFLICT (import_id) DO UPDATE
+        SET source_position = excluded.source_position, updated = now();
+    """;
+
+  private static final String dropSecondaryIndexesSql = """
+    DROP INDEX IF EXISTS idx_events_transaction_id_global_position;
+    """;
+
+  private static final String createSecondaryIndexesSql = """
+    CREATE INDEX IF NOT EXISTS idx_events_transaction_id_global_position
+      ON events(transaction_id, global_position);
+    """;
+
+  private static final String validateStreamPositionsSql = """
+    SELECT count(*) AS inconsistent_streams
+    FROM streams s
+    LEFT JOIN (
+        SELECT stream_id, max(stream_position) AS last_position, count(*) AS events_count
+        FROM all_events
+        GROUP BY stream_id
+    ) e ON e.stream_id = s.id
+    WHERE s.stream_position <> coalesce(e.last_position, 0)
+       OR s.stream_position <> coalesce(e.events_count, 0)
+    """;
+}
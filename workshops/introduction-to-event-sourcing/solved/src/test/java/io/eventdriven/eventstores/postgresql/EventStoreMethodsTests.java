@@ -1,22 +1,43 @@
 package io.eventdriven.eventstores.postgresql;
 
+import io.eventdriven.eventstores.AggregateCache;
+import io.eventdriven.eventstores.CachingEventStore;
 import io.eventdriven.eventstores.EventStore;
 import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.VirtualThreadAsyncEventStore;
+import io.eventdriven.eventstores.postgresql.subscriptions.EventEnvelope;
+import io.eventdriven.eventstores.postgresql.subscriptions.EventSubscriptionSettings;
+import io.eventdriven.eventstores.postgresql.subscriptions.ProjectionRebuildSettings;
 import io.eventdriven.eventstores.testing.bankaccounts.BankAccount;
+import io.eventdriven.eventstores.testing.tools.postgresql.PostgreSQLDbConnectionProvider;
 import io.eventdriven.eventstores.testing.tools.postgresql.PostgreSQLTest;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
 import static io.eventdriven.eventstores.testing.bankaccounts.BankAccount.Event.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class EventStoreMethodsTests extends PostgreSQLTest {
-  protected static EventStore eventStore;
+  protected static PostgreSQLEventStore eventStore;
 
   @BeforeAll
   public void setup() {
@@ -69,6 +90,386 @@ public class EventStoreMethodsTests extends PostgreSQLTest {
     assertEquals(cashWithdrawn, findFirstOfType(CashWithdrawnFromATM.class, events));
   }
 
+  @Test
+  public void subscribe_ShouldCatchUpAndReceiveLiveEvents() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2);
+
+    // appended before subscribing, read in catch-up mode
+    eventStore.appendToStream(streamName, List.of(bankAccountCreated, depositRecorded));
+
+    var received = new ArrayList<EventEnvelope>();
+    var allReceived = new CompletableFuture<List<EventEnvelope>>();
+
+    var settings = EventSubscriptionSettings.get()
+      .withSubscriptionId("subscribe_ShouldCatchUpAndReceiveLiveEvents")
+      .filterWithStreamType(BankAccount.class)
+      .withBatchSize(1)
+      .withPollingInterval(Duration.ofMillis(500))
+      .handleSingle(event -> {
+        if (!event.streamId().equals(bankAccountId))
+          return;
+
+        received.add(event);
+        if (received.size() == 3)
+          allReceived.complete(received);
+      });
+
+    try (var _ = eventStore.subscribe(
+      PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema()),
+      settings
+    )) {
+      // appended after catching up, read in live mode
+      eventStore.appendToStream(streamName, 2L, List.of(cashWithdrawn));
+
+      var events = allReceived.get(10, TimeUnit.SECONDS).stream()
+        .map(EventEnvelope::data)
+        .toList();
+
+      assertEquals(List.of(bankAccountCreated, depositRecorded, cashWithdrawn), events);
+    }
+  }
+
+  @Test
+  public void appendToStream_InOptimisticMode_ShouldRejectStaleExpectedPosition() {
+    var optimisticEventStore = new PostgreSQLEventStore(dbConnection, PostgreSQLEventStore.AppendMode.Optimistic);
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2);
+
+    optimisticEventStore.appendToStream(streamName, 0L, List.of(bankAccountCreated));
+    optimisticEventStore.appendToStream(streamName, 1L, List.of(depositRecorded));
+
+    assertThrows(
+      EventStore.InvalidExpectedStreamPositionException.class,
+      () -> optimisticEventStore.appendToStream(streamName, 1L, List.of(cashWithdrawn))
+    );
+    assertThrows(
+      EventStore.InvalidExpectedStreamPositionException.class,
+      () -> optimisticEventStore.appendToStream(streamName, 0L, List.of(cashWithdrawn))
+    );
+
+    optimisticEventStore.appendToStream(streamName, List.of(cashWithdrawn));
+
+    assertEquals(
+      List.of(bankAccountCreated, depositRecorded, cashWithdrawn),
+      optimisticEventStore.readStream(streamName).events()
+    );
+  }
+
+  @Test
+  public void appendToStream_InOptimisticMode_ShouldNotFailWithoutExpectation_WhenStreamIsCreatedConcurrently() throws Exception {
+    var writers = 8;
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var start = new CountDownLatch(1);
+
+    try (var executor = Executors.newFixedThreadPool(writers)) {
+      var appends = IntStream.range(0, writers)
+        .mapToObj(version -> executor.submit(() -> {
+          try (var connection = PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema())) {
+            var writerEventStore = new PostgreSQLEventStore(connection, PostgreSQLEventStore.AppendMode.Optimistic);
+            start.await();
+
+            return writerEventStore.appendToStream(
+              streamName,
+              List.of(new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, version))
+            );
+          }
+        }))
+        .toList();
+
+      start.countDown();
+
+      for (var append : appends) {
+        append.get(10, TimeUnit.SECONDS);
+      }
+    }
+
+    assertEquals(writers, eventStore.readStream(streamName).events().size());
+  }
+
+  @Test
+  public void groupCommitAppender_ShouldCommitTogetherAndFailOnlyConflictingAppends() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var firstAccountId = UUID.randomUUID().toString();
+    var secondAccountId = UUID.randomUUID().toString();
+    var firstStream = StreamName.of(BankAccount.class, firstAccountId);
+    var secondStream = StreamName.of(BankAccount.class, secondAccountId);
+
+    var firstAccountOpened = new BankAccountOpened(
+      firstAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var secondAccountOpened = new BankAccountOpened(
+      secondAccountId, "PL61 1090 1014 0000 0712 1981 2875", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(firstAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var staleDeposit = new DepositRecorded(secondAccountId, 100, UUID.randomUUID().toString(), now, 1);
+
+    try (var appender = eventStore.groupCommitAppender(
+      PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema()),
+      new GroupCommitAppender.Settings(10, Duration.ofMillis(50))
+    )) {
+      var firstOpened = appender.appendToStream(firstStream, 0L, List.of(firstAccountOpened));
+      var secondOpened = appender.appendToStream(secondStream, 0L, List.of(secondAccountOpened));
+      var deposited = appender.appendToStream(firstStream, 1L, List.of(depositRecorded));
+      var conflicted = appender.appendToStream(secondStream, 5L, List.of(staleDeposit));
+
+      assertEquals(1, firstOpened.get(10, TimeUnit.SECONDS).nextExpectedStreamPosition());
+      assertEquals(1, secondOpened.get(10, TimeUnit.SECONDS).nextExpectedStreamPosition());
+      assertEquals(2, deposited.get(10, TimeUnit.SECONDS).nextExpectedStreamPosition());
+
+      var error = assertThrows(ExecutionException.class, () -> conflicted.get(10, TimeUnit.SECONDS));
+      assertInstanceOf(EventStore.InvalidExpectedStreamPositionException.class, error.getCause());
+    }
+
+    assertEquals(List.of(firstAccountOpened, depositRecorded), eventStore.readStream(firstStream).events());
+    assertEquals(List.of(secondAccountOpened), eventStore.readStream(secondStream).events());
+  }
+
+  @Test
+  public void groupCommitAppender_ShouldRejectAppends_WhenNotRunning() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+
+    var appender = new GroupCommitAppender(
+      PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema()),
+      GroupCommitAppender.Settings.DEFAULT
+    );
+
+    var notStarted = appender.appendToStream(streamName, null, List.of(depositRecorded));
+    var error = assertThrows(ExecutionException.class, () -> notStarted.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(IllegalStateException.class, error.getCause());
+
+    appender.start();
+    appender.close();
+
+    var closed = appender.appendToStream(streamName, null, List.of(depositRecorded));
+    error = assertThrows(ExecutionException.class, () -> closed.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(IllegalStateException.class, error.getCause());
+  }
+
+  @Test
+  public void bulkImporter_ShouldImportEventsAndResumeFromCheckpoint() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var importId = "bulkImporter_" + bankAccountId;
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2);
+
+    var events = List.of(
+      BulkEventImporter.ImportedEvent.of(streamName, bankAccountCreated),
+      BulkEventImporter.ImportedEvent.of(streamName, depositRecorded),
+      BulkEventImporter.ImportedEvent.of(streamName, cashWithdrawn)
+    );
+
+    try (var importer = new BulkEventImporter(
+      PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema()),
+      new BulkEventImporter.Settings(2, true, true)
+    )) {
+      // simulates crash after the first chunk
+      var firstRun = importer.importEvents(importId, events.subList(0, 2).iterator());
+      assertEquals(2, firstRun.importedEvents());
+
+      var resumed = importer.importEvents(importId, events.iterator());
+      assertEquals(2, resumed.skippedEvents());
+      assertEquals(1, resumed.importedEvents());
+    }
+
+    var result = eventStore.readStream(streamName);
+    assertEquals(List.of(bankAccountCreated, depositRecorded, cashWithdrawn), result.events());
+
+    // regular appends continue from the imported position
+    eventStore.appendToStream(streamName, 3L, List.of(depositRecorded));
+  }
+
+  @Test
+  public void asyncEventStore_ShouldRunGetAndUpdateWithoutBlockingCaller() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+
+    // store uses a single connection, so calls can't run concurrently
+    try (var asyncEventStore = new VirtualThreadAsyncEventStore(eventStore, 1)) {
+      var result = asyncEventStore.appendToStream(streamName, List.of(bankAccountCreated))
+        .thenCompose(_ -> asyncEventStore.<BankAccount, BankAccount.Event>getAndUpdate(
+          () -> null,
+          BankAccount::evolve,
+          streamName,
+          bankAccount -> List.of(depositRecorded)
+        ))
+        .get(10, TimeUnit.SECONDS);
+
+      assertEquals(2, result.nextExpectedStreamPosition());
+
+      var bankAccount = asyncEventStore.<BankAccount, BankAccount.Event>aggregateStream(
+        () -> null,
+        BankAccount::evolve,
+        streamName
+      ).get(10, TimeUnit.SECONDS).state();
+
+      assertEquals(100, bankAccount.balance());
+    }
+  }
+
+  @Test
+  public void cachingEventStore_ShouldCatchUpCachedStateWithNewEvents() {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+    var cache = new AggregateCache(AggregateCache.Settings.DEFAULT);
+    var cachingEventStore = new CachingEventStore(eventStore, cache);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+
+    cachingEventStore.<BankAccount, BankAccount.Event>getAndUpdate(
+      () -> null,
+      BankAccount::evolve,
+      streamName,
+      _ -> List.of(bankAccountCreated)
+    );
+
+    // appended bypassing the cache, e.g. by other node
+    eventStore.appendToStream(
+      streamName,
+      1L,
+      List.of(new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1))
+    );
+
+    var result = cachingEventStore.<BankAccount, BankAccount.Event>getAndUpdate(
+      () -> null,
+      BankAccount::evolve,
+      streamName,
+      bankAccount -> List.of(
+        new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, bankAccount.version() + 1)
+      )
+    );
+
+    assertEquals(3, result.nextExpectedStreamPosition());
+    assertEquals(
+      50,
+      cachingEventStore.<BankAccount, BankAccount.Event>aggregateStream(() -> null, BankAccount::evolve, streamName)
+        .state().balance()
+    );
+    assertEquals(2, cache.metrics().hits());
+    assertEquals(1, cache.metrics().misses());
+  }
+
+  @Test
+  public void streamArchiver_ShouldMoveArchivableStreamsAndKeepThemReadable() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var bankAccountId = UUID.randomUUID().toString();
+    var streamName = StreamName.of(BankAccount.class, bankAccountId);
+
+    var bankAccountCreated = new BankAccountOpened(
+      bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", UUID.randomUUID().toString(), "PLN", now, 0
+    );
+    var depositRecorded = new DepositRecorded(bankAccountId, 100, UUID.randomUUID().toString(), now, 1);
+    var cashWithdrawn = new CashWithdrawnFromATM(bankAccountId, 50, UUID.randomUUID().toString(), now, 2);
+
+    eventStore.appendToStream(streamName, List.of(bankAccountCreated, depositRecorded));
+    eventStore.markArchivable(streamName);
+
+    try (var archiver = eventStore.streamArchiver(
+      PostgreSQLDbConnectionProvider.getDbConnection(dbConnection.getSchema()),
+      new StreamArchiver.Settings(Duration.ofDays(365), 100, false)
+    )) {
+      var result = archiver.archive();
+      assertTrue(result.archivedEvents() >= 2);
+    }
+
+    var hotEvents = querySingleSql(
+      dbConnection,
+      "SELECT count(*) AS count FROM events WHERE stream_id = ?",
+      setStringParam(bankAccountId),
+      rs -> getLong(rs, "count")
+    );
+    assertEquals(0, hotEvents);
+    assertEquals(List.of(bankAccountCreated, depositRecorded), eventStore.readStream(streamName).events());
+
+    // archived stream can still be appended to, reads merge both tiers
+    eventStore.appendToStream(streamName, 2L, List.of(cashWithdrawn));
+
+    assertEquals(
+      List.of(bankAccountCreated, depositRecorded, cashWithdrawn),
+      eventStore.readStream(streamName).events()
+    );
+    assertEquals(List.of(cashWithdrawn), eventStore.readStreamAfter(streamName, 2).events());
+  }
+
+  @Test
+  public void rebuildProjection_ShouldReplayEachStreamInOrderAcrossPartitions() throws Exception {
+    var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    var streamIds = IntStream.range(0, 20).mapToObj(_ -> UUID.randomUUID().toString()).toList();
+
+    for (var bankAccountId : streamIds) {
+      eventStore.appendToStream(
+        StreamName.of(BankAccount.class, bankAccountId),
+        List.of(
+          new BankAccountOpened(bankAccountId, "PL61 1090 1014 0000 0712 1981 2874", "client", "PLN", now, 0),
+          new DepositRecorded(bankAccountId, 100, "cashier", now, 1),
+          new CashWithdrawnFromATM(bankAccountId, 50, "atm", now, 2)
+        )
+      );
+    }
+
+    var replayed = new ConcurrentHashMap<String, List<Long>>();
+    var schema = dbConnection.getSchema();
+    var subscriptionId = "rebuildProjection_" + UUID.randomUUID();
+
+    var result = eventStore.rebuildProjection(
+      () -> PostgreSQLDbConnectionProvider.getDbConnection(schema),
+      ProjectionRebuildSettings.get()
+        .withRebuildId(UUID.randomUUID().toString())
+        .continueWithSubscription(subscriptionId)
+        .withParallelism(2)
+        .withBatchSize(5)
+        .handleSingle(event -> {
+          if (streamIds.contains(event.streamId()))
+            replayed.computeIfAbsent(event.streamId(), _ -> new CopyOnWriteArrayList<>()).add(event.streamPosition());
+        })
+    );
+
+    assertEquals(streamIds.size(), replayed.size());
+    replayed.values().forEach(positions -> assertEquals(List.of(1L, 2L, 3L), positions));
+
+    var subscriptionCheckpoint = querySingleSql(
+      dbConnection,
+      "SELECT global_position FROM subscription_checkpoints WHERE subscription_id = ?",
+      setStringParam(subscriptionId),
+      rs -> getLong(rs, "global_position")
+    );
+    assertEquals(result.position().globalPosition(), subscriptionCheckpoint);
+  }
+
   private <Event> Event findFirstOfType(Class<Event> type, List<Object> events) {
     return events.stream()
       .filter(type::isInstance)
@@ -0,0 +1,288 @@
+package io.eventdriven.eventstores.postgresql;
+
+import io.eventdriven.eventstores.EventStore.AppendResult;
+import io.eventdriven.eventstores.EventStore.InvalidExpectedStreamPositionException;
+import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
+import io.eventdriven.eventstores.postgresql.tools.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+
+/**
+ * Appends events from many concurrent callers (also to different streams) in a shared transaction,
+ * so they pay for a single commit (WAL flush) instead of one each.
+ * <p>
+ * Requests are queued and flushed by a single thread when the batch is full or the first queued
+ * request waited `maxWait`. Each request keeps its own optimistic concurrency check and fails
+ * independently: `append_to_stream_optimistic` returns false without writing anything, so
+ * a conflicting request doesn't break the rest of the batch. If the whole transaction fails
+ * (e.g. on a unique violation or deadlock), its requests are retried one by one, so only
+ * the faulty one fails.
+ * <p>
+ * Futures are completed after commit. Uses dedicated connection, closed together with appender.
+ */
+public class GroupCommitAppender implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(GroupCommitAppender.class);
+  private final Connection dbConnection;
+  private final Settings settings;
+  private final EventStoreMetrics metrics;
+  private final BlockingQueue<AppendRequest> queue = new LinkedBlockingQueue<>();
+  // set on start, cleared on close or when the flushing thread dies
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Histogram flushSizes = new Histogram();
+  private final Histogram latenciesMicros = new Histogram();
+
+  /**
+   * @param maxBatchSize maximum number of append requests committed together
+   * @param maxWait      maximum time the first queued request waits for others to join the batch
+   */
+  public record Settings(int maxBatchSize, Duration maxWait) {
+    public static final Settings DEFAULT = new Settings(100, Duration.ofMillis(5));
+  }
+
+  public GroupCommitAppender(Connection dbConnection, Settings settings) {
+    this(dbConnection, settings, EventStoreMetrics.NOOP);
+  }
+
+  public GroupCommitAppender(Connection dbConnection, Settings settings, EventStoreMetrics metrics) {
+    if (settings.maxBatchSize() < 1) {
+      throw new IllegalArgumentException("Max batch size must be positive");
+    }
+    this.dbConnection = dbConnection;
+    this.settings = settings;
+    this.metrics = metrics;
+  }
+
+  public void start() {
+    if (executor.isShutdown())
+      throw new IllegalStateException("Group commit appender is closed");
+
+    if (!running.compareAndSet(false, true))
+      throw new IllegalStateException("Group commit appender is already started");
+
+    executor.submit(this::flushLoop);
+  }
+
+  public CompletableFuture<AppendResult> appendToStream(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events
+  ) {
+    var queuedAt = System.nanoTime();
+    // serialized on the caller thread, so the flusher only talks to the database
+    var eventData = PostgreSQLEventStore.serialize(streamName, events, metrics);
+
+    var request = new AppendRequest(
+      streamName,
+      expectedStreamPosition,
+      events,
+      eventData,
+      queuedAt,
+      new CompletableFuture<>()
+    );
+
+    if (!running.get()) {
+      request.result().completeExceptionally(notRunning());
+      return request.result();
+    }
+
+    queue.add(request);
+
+    // appender could stop after the check above and fail pending requests before this one was queued,
+    // if it's still in the queue, nobody else will complete it
+    if (!running.get() && queue.remove(request))
+      request.result().completeExceptionally(notRunning());
+
+    return request.result();
+  }
+
+  /**
+   * Number of append requests committed in a single transaction.
+   */
+  public Histogram flushSizes() {
+    return flushSizes;
+  }
+
+  /**
+   * Time from queueing the request to completing its future, in microseconds.
+   */
+  public Histogram latenciesMicros() {
+    return latenciesMicros;
+  }
+
+  private void flushLoop() {
+    try {
+      while (running.get() || !queue.isEmpty()) {
+        var first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null)
+          continue;
+
+        var batch = new ArrayList<AppendRequest>(settings.maxBatchSize());
+        batch.add(first);
+
+        var deadline = first.queuedAt() + settings.maxWait().toNanos();
+
+        while (batch.size() < settings.maxBatchSize()) {
+          queue.drainTo(batch, settings.maxBatchSize() - batch.size());
+
+          var remaining = deadline - System.nanoTime();
+          if (batch.size() >= settings.maxBatchSize() || remaining <= 0)
+            break;
+
+          var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null)
+            break;
+
+          batch.add(next);
+        }
+
+        try {
+          flush(batch);
+        } catch (RuntimeException e) {
+          // completing already completed futures is a no-op, so only unfinished ones are failed
+          batch.forEach(request -> request.result().completeExceptionally(e));
+          throw e;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.error("Group commit appender stopped, pending appends will be failed", e);
+    } finally {
+      // stop accepting appends first, so none is queued after pending ones are failed
+      running.set(false);
+      failPending(notRunning());
+    }
+  }
+
+  private void flush(List<AppendRequest> batch) {
+    List<Outcome> outcomes;
+    try {
+      outcomes = runInTransaction(dbConnection, connection ->
+        batch.stream().map(request -> append(connection, request)).toList()
+      );
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        complete(batch.getFirst(), new Outcome(null, e));
+        return;
+      }
+      // isolate the request that broke the transaction
+      batch.forEach(request -> flush(List.of(request)));
+      return;
+    }
+
+    flushSizes.record(batch.size());
+
+    for (var i = 0; i < batch.size(); i++) {
+      complete(batch.get(i), outcomes.get(i));
+    }
+  }
+
+  private static Outcome append(Connection connection, AppendRequest request) {
+    var succeeded = PostgreSQLEventStore.append(
+      connection,
+      PostgreSQLEventStore.optimisticAppendToStreamSql,
+      request.streamName(),
+      request.expectedStreamPosition(),
+      request.events(),
+      request.eventData()
+    );
+
+    if (!succeeded) {
+      return new Outcome(
+        null,
+        new InvalidExpectedStreamPositionException(
+          request.streamName().toString(),
+          request.expectedStreamPosition()
+        )
+      );
+    }
+
+    var nextExpectedPosition = request.expectedStreamPosition() != null ?
+      request.expectedStreamPosition() + request.events().size()
+      : querySingleSql(
+      connection,
+      "SELECT stream_position FROM streams WHERE id = ?",
+      setStringParam(request.streamName().streamId()),
+      rs -> getLong(rs, "stream_position")
+    );
+
+    return new Outcome(new AppendResult(nextExpectedPosition), null);
+  }
+
+  private void complete(AppendRequest request, Outcome outcome) {
+    var latencyNanos = System.nanoTime() - request.queuedAt();
+    latenciesMicros.record(latencyNanos / 1_000);
+
+    var streamType = request.streamName().streamType();
+    if (outcome.error() instanceof InvalidExpectedStreamPositionException)
+      metrics.recordAppendConflict(streamType);
+    else if (outcome.error() == null)
+      metrics.recordAppend(
+        streamType,
+        request.events().size(),
+        PostgreSQLEventStore.serializedSize(request.eventData()),
+        latencyNanos
+      );
+
+    if (outcome.error() != null)
+      request.result().completeExceptionally(outcome.error());
+    else
+      request.result().complete(outcome.result());
+  }
+
+  private static IllegalStateException notRunning() {
+    return new IllegalStateException("Group commit appender is not running");
+  }
+
+  private void failPending(Exception error) {
+    AppendRequest request;
+    while ((request = queue.poll()) != null) {
+      request.result().completeExceptionally(error);
+    }
+  }
+
+  /**
+   * Stops accepting new appends, flushes already queued ones and closes the connection.
+   */
+  @Override
+  public void close() {
+    running.set(false);
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(settings.maxWait().toMillis() + 5000, TimeUnit.MILLISECONDS)) {
+        logger.warn("Group commit appender did not flush queued appends in time");
+        executor.shutdownNow();
+      }
+      dbConnection.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private record AppendRequest(
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events,
+    String[] eventData,
+    long queuedAt,
+    CompletableFuture<AppendResult> result
+  ) {
+  }
+
+  private record Outcome(AppendResult result, RuntimeException error) {
+  }
+}
@@ -4,11 +4,19 @@ import io.eventdriven.eventstores.EventStore;
 import io.eventdriven.eventstores.EventTypeMapper;
 import io.eventdriven.eventstores.JsonEventSerializer;
 import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
+import io.eventdriven.eventstores.postgresql.subscriptions.EventSubscription;
+import io.eventdriven.eventstores.postgresql.subscriptions.EventSubscriptionSettings;
+import io.eventdriven.eventstores.postgresql.subscriptions.ProjectionRebuildSettings;
+import io.eventdriven.eventstores.postgresql.subscriptions.ProjectionRebuilder;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import static io.eventdriven.eventstores.JsonEventSerializer.deserialize;
 import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
@@ -16,16 +24,114 @@ import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
 
 public class PostgreSQLEventStore implements EventStore, AutoCloseable {
   private final Connection dbConnection;
+  private final AppendMode appendMode;
+  private final EventStoreMetrics metrics;
+
+  public enum AppendMode {
+    /**
+     * Locks stream row with `SELECT ... FOR UPDATE` before checking its position.
+     */
+    PessimisticLock,
+    /**
+     * Moves stream position with a conditional `UPDATE ... WHERE stream_position = expected`
+     * and relies on (stream_id, stream_position) primary key as the last line of defence.
+     * There's no explicit lock taken before the check.
+     */
+    Optimistic
+  }
 
   public PostgreSQLEventStore(Connection dbConnection) {
+    this(dbConnection, AppendMode.PessimisticLock);
+  }
+
+  public PostgreSQLEventStore(Connection dbConnection, AppendMode appendMode) {
+    this(dbConnection, appendMode, EventStoreMetrics.NOOP);
+  }
+
+  public PostgreSQLEventStore(Connection dbConnection, AppendMode appendMode, EventStoreMetrics metrics) {
     this.dbConnection = dbConnection;
+    this.appendMode = appendMode;
+    this.metrics = metrics;
   }
 
   @Override
   public void init() {
     executeSql(dbConnection, createStreamsTableSql);
     executeSql(dbConnection, createEventsTableSql);
+    executeSql(dbConnection, createEventsArchiveTableSql);
+    executeSql(dbConnection, createSubscriptionCheckpointsTableSql);
     executeSql(dbConnection, createAppendFunctionSql);
+    executeSql(dbConnection, createOptimisticAppendFunctionSql);
+  }
+
+  /**
+   * Starts appender that commits concurrent appends (also to different streams) together.
+   *
+   * @param appenderConnection dedicated connection used to flush appends,
+   *                           closed together with the appender
+   */
+  public GroupCommitAppender groupCommitAppender(
+    Connection appenderConnection,
+    GroupCommitAppender.Settings settings
+  ) {
+    var appender = new GroupCommitAppender(appenderConnection, settings, metrics);
+
+    appender.start();
+
+    return appender;
+  }
+
+  /**
+   * Creates job moving archivable or idle streams from `events` to `events_archive`.
+   *
+   * @param archiverConnection dedicated connection used by the job, closed together with the archiver
+   */
+  public StreamArchiver streamArchiver(
+    Connection archiverConnection,
+    StreamArchiver.Settings settings
+  ) {
+    return new StreamArchiver(archiverConnection, settings);
+  }
+
+  /**
+   * Marks stream (e.g. of a confirmed shopping cart) as not expected to be written again,
+   * so it's archived by the next archiver run regardless of how long it's been idle.
+   */
+  public void markArchivable(StreamName streamName) {
+    executeSql(
+      dbConnection,
+      "UPDATE streams SET archivable = TRUE WHERE id = ?",
+      setStringParam(streamName.streamId())
+    );
+  }
+
+  /**
+   * Replays all events in parallel to rebuild a read model from scratch.
+   *
+   * @param connectionFactory opens connections used by the coordinator and each replayed partition
+   */
+  public ProjectionRebuilder.RebuildResult rebuildProjection(
+    Supplier<Connection> connectionFactory,
+    ProjectionRebuildSettings settings
+  ) {
+    return new ProjectionRebuilder(connectionFactory, settings).rebuild();
+  }
+
+  /**
+   * Starts catch-up subscription to all events.
+   *
+   * @param subscriptionConnection dedicated connection used to read events and LISTEN for new ones,
+   *                               closed together with the subscription
+   */
+  public EventSubscription subscribe(
+    Connection subscriptionConnection,
+    EventSubscriptionSettings settings
+  ) {
+    var subscription = new EventSubscription(subscriptionConnection, settings);
+
+    subscription.start();
+
+    return subscription;
   }
 
   @Override
@@ -39,46 +145,90 @@ public class PostgreSQLEventStore implements EventStore, AutoCloseable {
     Long expectedStreamPosition,
     List<Object> events
   ) {
-    return runInTransaction(dbConnection, connection ->
-    {
-      var ids = events.stream()
-        .map(_ -> UUID.randomUUID().toString())
-        .toArray(String[]::new);
-
-      var eventData = events.stream()
-        .map(JsonEventSerializer::serialize)
-        .toArray(String[]::new);
+    var start = System.nanoTime();
+    var eventData = serialize(streamName, events, metrics);
 
-      var eventMetadata = events.stream()
-        .map(_ -> "{}")
-        .toArray(String[]::new);
-
-      var eventTypes = events.stream()
-        .map(event -> EventTypeMapper.toName(event.getClass()))
-        .toArray(String[]::new);
-
-      boolean succeeded = querySingleSql(
+    var result = runInTransaction(dbConnection, connection ->
+    {
+      boolean succeeded = append(
         connection,
-        "SELECT append_to_stream(?::text[], ?::jsonb[], ?::jsonb[], ?::text[], ?::text, ?, ?) AS succeeded",
-        ps -> {
-          setArrayOf(dbConnection, ps, 1, "text", ids);
-          setArrayOf(dbConnection, ps, 2, "jsonb", eventData);
-          setArrayOf(dbConnection, ps, 3, "jsonb", eventMetadata);
-          setArrayOf(dbConnection, ps, 4, "text", eventTypes);
-          setStringParam(ps, 5, streamName.streamId());
-          setStringParam(ps, 6, streamName.streamType());
-          setLong(ps, 7, expectedStreamPosition);
-        },
-        rs -> getBoolean(rs, "succeeded")
+        appendMode == AppendMode.Optimistic ? optimisticAppendToStreamSql : appendToStreamSql,
+        streamName,
+        expectedStreamPosition,
+        events,
+        eventData
       );
 
-      if (!succeeded)
+      if (!succeeded) {
+        metrics.recordAppendConflict(streamName.streamType());
         throw new InvalidExpectedStreamPositionException(streamName.toString(), expectedStreamPosition);
+      }
 
       var nextExpectedPosition = (expectedStreamPosition != null? expectedStreamPosition: 0)+ events.size();
 
       return new AppendResult(nextExpectedPosition);
     });
+
+    metrics.recordAppend(streamName.streamType(), events.size(), serializedSize(eventData), System.nanoTime() - start);
+
+    return result;
+  }
+
+  static String[] serialize(StreamName streamName, List<Object> events, EventStoreMetrics metrics) {
+    var eventData = new String[events.size()];
+
+    for (var i = 0; i < eventData.length; i++) {
+      var start = System.nanoTime();
+      eventData[i] = JsonEventSerializer.serialize(events.get(i));
+      metrics.recordSerialization(streamName.streamType(), eventData[i].length(), System.nanoTime() - start);
+    }
+
+    return eventData;
+  }
+
+  // JSON of events is mostly ASCII, so its length is close enough to the stored size
+  static long serializedSize(String[] eventData) {
+    var size = 0L;
+    for (var data : eventData) {
+      size += data.length();
+    }
+    return size;
+  }
+
+  static boolean append(
+    Connection connection,
+    String appendSql,
+    StreamName streamName,
+    Long expectedStreamPosition,
+    List<Object> events,
+    String[] eventData
+  ) {
+    var ids = events.stream()
+      .map(_ -> UUID.randomUUID().toString())
+      .toArray(String[]::new);
+
+    var eventMetadata = events.stream()
+      .map(_ -> "{}")
+      .toArray(String[]::new);
+
+    var eventTypes = events.stream()
+      .map(event -> EventTypeMapper.toName(event.getClass()))
+      .toArray(String[]::new);
+
+    return querySingleSql(
+      connection,
+      appendSql,
+      ps -> {
+        setArrayOf(connection, ps, 1, "text", ids);
+        setArrayOf(connection, ps, 2, "jsonb", eventData);
+        setArrayOf(connection, ps, 3, "jsonb", eventMetadata);
+        setArrayOf(connection, ps, 4, "text", eventTypes);
+        setStringParam(ps, 5, streamName.streamId());
+        setStringParam(ps, 6, streamName.streamType());
+        setLong(ps, 7, expectedStreamPosition);
+      },
+      rs -> getBoolean(rs, "succeeded")
+    );
   }
 
   @Override
@@ -86,54 +236,115 @@ public class PostgreSQLEventStore implements EventStore, AutoCloseable {
     return readStream(streamName, null, null);
   }
 
+  @Override
+  public ReadStreamResult readStreamAfter(StreamName streamName, long afterStreamPosition) {
+    var start = System.nanoTime();
+    var events = queryStreamEvents(
+      streamName,
+      " AND stream_position > ?",
+      (ps, index) -> setLong(ps, index, afterStreamPosition)
+    );
+    metrics.recordRead(streamName.streamType(), events.size(), System.nanoTime() - start);
+
+    return new ReadStreamResult(afterStreamPosition + events.size(), events);
+  }
+
   public ReadStreamResult readStream(
     StreamName streamName,
     Long atStreamPosition,
     LocalDateTime atTimestamp
   ) {
-    var atStreamCondition = atStreamPosition != null ? "AND stream_position <= ?" : "";
-    var atTimestampCondition = atTimestamp != null ? "AND created <= ?" : "";
-
-    var getStreamSql = """
-      SELECT id, data, stream_id, type, stream_position, created
-      FROM events
-      WHERE stream_id = ?
-      """
-      + atStreamCondition
-      + atTimestampCondition
-      + " ORDER BY stream_position";
-
-    var events = querySql(
-      dbConnection,
-      getStreamSql,
-      ps -> {
-        var index = 1;
-        setStringParam(ps, index++, streamName.streamId());
+    var atStreamCondition = atStreamPosition != null ? " AND stream_position <= ?" : "";
+    var atTimestampCondition = atTimestamp != null ? " AND created <= ?" : "";
+
+    var start = System.nanoTime();
+    var events = queryStreamEvents(
+      streamName,
+      atStreamCondition + atTimestampCondition,
+      (ps, index) -> {
         if (atStreamPosition != null)
           setLong(ps, index++, atStreamPosition);
         if (atTimestamp != null)
           setLocalDateTime(ps, index, atTimestamp);
+      }
+    );
+    metrics.recordRead(streamName.streamType(), events.size(), System.nanoTime() - start);
+
+    // TODO: This should read the position from Streams table
+    return new ReadStreamResult(events.size(), events);
+  }
+
+  /**
+   * Reads events of the stream from the hot table and, only if the stream was archived,
+   * also from the archive. Tier check is evaluated once, so hot streams don't touch the archive.
+   */
+  private List<Object> queryStreamEvents(
+    StreamName streamName,
+    String conditions,
+    BiConsumer<PreparedStatement, Integer> setConditionParams
+  ) {
+    return querySql(
+      dbConnection,
+      readStreamEventsSql + conditions + " ORDER BY stream_position",
+      ps -> {
+        setStringParam(ps, 1, streamName.streamId());
+        setStringParam(ps, 2, streamName.streamId());
+        setStringParam(ps, 3, streamName.streamId());
+        setConditionParams.accept(ps, 4);
       },
       rs -> {
         var eventTypeName = getString(rs, "type");
-        return deserialize(
+        var data = getString(rs, "data");
+
+        var start = System.nanoTime();
+        var event = deserialize(
           EventTypeMapper.toClass(eventTypeName).get(),
           eventTypeName,
-          getString(rs, "data")
+          data
         ).get();
+        metrics.recordDeserialization(streamName.streamType(), data.length(), System.nanoTime() - start);
+
+        return event;
       }
     );
-
-    // TODO: This should read the position from Streams table
-    return new ReadStreamResult(events.size(), events);
   }
 
+  private static final String readStreamEventsSql = """
+    SELECT id, data, stream_id, type, stream_position, created
+    FROM (
+        SELECT id, data, stream_id, type, stream_position, created
+        FROM events
+        WHERE stream_id = ?
+        UNION ALL
+        SELECT id, data, stream_id, type, stream_position, created
+        FROM events_archive
+        WHERE stream_id = ?
+          AND EXISTS (SELECT 1 FROM streams WHERE id = ? AND tier = 'cold')
+    ) e
+    WHERE TRUE""";
+
+  private static final String appendToStreamSql =
+    "SELECT append_to_stream(?::text[], ?::jsonb[], ?::jsonb[], ?::text[], ?::text, ?, ?) AS succeeded";
+
+  /**
+   * Number of buckets events are spread into by the hash of stream id, stored in `partition_key`,
+   * so projection rebuild can replay each of them with an index range scan.
+   */
+  public static final int partitionKeys = 64;
+
+  static final String optimisticAppendToStreamSql =
+    "SELECT append_to_stream_optimistic(?::text[], ?::jsonb[], ?::jsonb[], ?::text[], ?::text, ?, ?) AS succeeded";
+
   private final String createStreamsTableSql = """
     CREATE TABLE IF NOT EXISTS streams(
         id               TEXT                      NOT NULL    PRIMARY KEY,
         type             TEXT                      NOT NULL,
         stream_position  BIGINT                    NOT NULL
     );
+
+    ALTER TABLE streams
+      ADD COLUMN IF NOT EXISTS tier TEXT NOT NULL DEFAULT 'hot',
+      ADD COLUMN IF NOT EXISTS archivable BOOLEAN NOT NULL DEFAULT FALSE;
     """;
 
   private final String createEventsTableSql = """
@@ -148,9 +359,69 @@ public class PostgreSQLEventStore implements EventStore, AutoCloseable {
           metadata         JSONB                     DEFAULT '{}',
           type             TEXT                      NOT NULL,
           created          timestamp with time zone  NOT NULL    default (now()),
+          transaction_id   XID8                      NOT NULL    default (pg_current_xact_id()),
+          FOREIGN KEY(stream_id) REFERENCES streams(id),
+          PRIMARY KEY (stream_id, stream_position)
+    );
+
+    ALTER TABLE events
+      ADD COLUMN IF NOT EXISTS transaction_id XID8 NOT NULL default (pg_current_xact_id());
+
+    CREATE INDEX IF NOT EXISTS idx_events_transaction_id_global_position
+      ON events(transaction_id, global_position);
+
+    ALTER TABLE events
+      ADD COLUMN IF NOT EXISTS partition_key SMALLINT
+        GENERATED ALWAYS AS ((hashtext(stream_id) & 2147483647) %% %1$d) STORED;
+
+    CREATE INDEX IF NOT EXISTS idx_events_partition_key_transaction_id_global_position
+      ON events(partition_key, transaction_id, global_position);
+    """.formatted(partitionKeys);
+
+  // archived streams keep their rows in `streams`, appends to them go to the hot table again
+  private final String createEventsArchiveTableSql = """
+    CREATE TABLE IF NOT EXISTS events_archive(
+          stream_id        TEXT                      NOT NULL,
+          stream_position  BIGINT                    NOT NULL,
+          global_position  BIGINT                    NOT NULL,
+          id               TEXT                      NOT NULL,
+          data             JSONB                     NOT NULL,
+          metadata         JSONB                     DEFAULT '{}',
+          type             TEXT                      NOT NULL,
+          created          timestamp with time zone  NOT NULL,
+          transaction_id   XID8                      NOT NULL,
+          archived         timestamp with time zone  NOT NULL    default (now()),
           FOREIGN KEY(stream_id) REFERENCES streams(id),
           PRIMARY KEY (stream_id, stream_position)
     );
+
+    CREATE INDEX IF NOT EXISTS idx_events_archive_transaction_id_global_position
+      ON events_archive(transaction_id, global_position);
+
+    ALTER TABLE events_archive
+      ADD COLUMN IF NOT EXISTS partition_key SMALLINT
+        GENERATED ALWAYS AS ((hashtext(stream_id) & 2147483647) %% %1$d) STORED;
+
+    CREATE INDEX IF NOT EXISTS idx_events_archive_partition_key_transaction_id_global_position
+      ON events_archive(partition_key, transaction_id, global_position);
+
+    CREATE OR REPLACE VIEW all_events AS
+        SELECT stream_id, stream_position, global_position, id, data, metadata, type, created, transaction_id,
+               partition_key
+        FROM events
+        UNION ALL
+        SELECT stream_id, stream_position, global_position, id, data, metadata, type, created, transaction_id,
+               partition_key
+        FROM events_archive;
+    """.formatted(partitionKeys);
+
+  private final String createSubscriptionCheckpointsTableSql = """
+    CREATE TABLE IF NOT EXISTS subscription_checkpoints(
+        subscription_id  TEXT                      NOT NULL    PRIMARY KEY,
+        transaction_id   XID8                      NOT NULL,
+        global_position  BIGINT                    NOT NULL,
+        updated          timestamp with time zone  NOT NULL    default (now())
+    );
     """;
 
 
@@ -225,6 +496,93 @@ public class PostgreSQLEventStore implements EventStore, AutoCloseable {
                 types_array
             ) WITH ORDINALITY AS t(id, data, metadata, type);
 
+            -- wake up live subscriptions, delivered on commit
+            PERFORM pg_notify('events_appended', stream_type);
+
+            RETURN TRUE;
+        END;
+        $$;
+    """;
+
+  private final String createOptimisticAppendFunctionSql = """
+    CREATE OR REPLACE FUNCTION append_to_stream_optimistic(
+        ids_array TEXT[],
+        data_array jsonb[],
+        metadata_array jsonb[],
+        types_array text[],
+        stream_id TEXT,
+        stream_type text,
+        expected_stream_position bigint default null
+    ) RETURNS boolean
+        LANGUAGE plpgsql
+        AS $$
+        DECLARE
+            events_count int;
+            current_stream_position bigint;
+            updated_rows int;
+        BEGIN
+            -- Calculate number of events
+            events_count := array_length(ids_array, 1);
+
+            IF expected_stream_position IS NULL THEN
+                -- create stream or move position of existing one in a single statement,
+                -- so appends without expectation never fail on concurrent stream creation
+                INSERT INTO streams as s
+                    (id, type, stream_position)
+                VALUES
+                    (stream_id, stream_type, events_count)
+                ON CONFLICT (id) DO UPDATE
+                    SET stream_position = s.stream_position + events_count
+                RETURNING s.stream_position - events_count INTO current_stream_position;
+
+                get diagnostics updated_rows = row_count;
+            ELSIF expected_stream_position = 0 THEN
+                -- create new stream, or take over existing empty one
+                INSERT INTO streams as s
+                    (id, type, stream_position)
+                VALUES
+                    (stream_id, stream_type, events_count)
+                ON CONFLICT (id) DO UPDATE
+                    SET stream_position = EXCLUDED.stream_position
+                    WHERE s.stream_position = 0;
+
+                get diagnostics updated_rows = row_count;
+                current_stream_position := 0;
+            ELSE
+                -- check optimistic concurrency and move stream position at once
+                UPDATE streams as s
+                    SET stream_position = expected_stream_position + events_count
+                WHERE
+                    s.id = stream_id AND s.stream_position = expected_stream_position;
+
+                get diagnostics updated_rows = row_count;
+                current_stream_position := expected_stream_position;
+            END IF;
+
+            IF updated_rows = 0 THEN
+                RETURN FALSE;
+            END IF;
+
+            -- append events, (stream_id, stream_position) primary key rejects any duplicates
+            INSERT INTO events
+                (id, data, metadata, stream_id, type, stream_position)
+            SELECT
+                id,
+                data,
+                metadata,
+                stream_id,
+                type,
+                current_stream_position + ordinality
+            FROM unnest(
+                ids_array,
+                data_array,
+                metadata_array,
+                types_array
+            ) WITH ORDINALITY AS t(id, data, metadata, type);
+
+            -- wake up live subscriptions, delivered on commit
+            PERFORM pg_notify('events_appended', stream_type);
+
             RETURN TRUE;
         END;
         $$;
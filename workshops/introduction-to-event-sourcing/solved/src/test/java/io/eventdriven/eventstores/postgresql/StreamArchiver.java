@@ -0,0 +1,132 @@
+package io.eventdriven.eventstores.postgresql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+
+/**
+ * Moves events of streams that are not expected to be written again from `events` to `events_archive`,
+ * so the hot table and its indexes contain only the working set.
+ * <p>
+ * Stream is archived if it was marked as archivable or its last event is older than `idleFor`.
+ * Its row in `streams` stays, with `tier` set to `cold`. Reads of cold streams also look into
+ * the archive, subscriptions read from the `all_events` view. Appending to an archived stream
+ * is still possible, new events land in the hot table and are archived again by the next run.
+ * <p>
+ * Streams are moved in batches, each in its own transaction. Stream rows are locked, so appends
+ * to streams being archived wait, other archiver instances skip them.
+ * Uses dedicated connection, closed together with the archiver.
+ */
+public class StreamArchiver implements AutoCloseable {
+  private final Connection dbConnection;
+  private final Settings settings;
+
+  /**
+   * @param idleFor             time since the last event after which stream is archived
+   * @param batchSize           number of streams moved in a single transaction
+   * @param vacuumAfterArchive  whether to VACUUM the hot table after the run,
+   *                            so space of moved events can be reused right away
+   */
+  public record Settings(Duration idleFor, int batchSize, boolean vacuumAfterArchive) {
+    public static final Settings DEFAULT = new Settings(Duration.ofDays(30), 1_000, true);
+  }
+
+  public record ArchiveResult(long archivedStreams, long archivedEvents) {
+  }
+
+  public StreamArchiver(Connection dbConnection, Settings settings) {
+    if (settings.batchSize() < 1) {
+      throw new IllegalArgumentException("Batch size must be positive");
+    }
+    this.dbConnection = dbConnection;
+    this.settings = settings;
+  }
+
+  /**
+   * Archives all streams qualifying at the moment of the call.
+   */
+  public ArchiveResult archive() {
+    var archivedStreams = 0L;
+    var archivedEvents = 0L;
+
+    ArchiveResult batch;
+    do {
+      batch = archiveBatch();
+      archivedStreams += batch.archivedStreams();
+      archivedEvents += batch.archivedEvents();
+    } while (batch.archivedStreams() == settings.batchSize());
+
+    if (settings.vacuumAfterArchive() && archivedEvents > 0)
+      executeSql(dbConnection, "VACUUM (ANALYZE) events");
+
+    return new ArchiveResult(archivedStreams, archivedEvents);
+  }
+
+  private ArchiveResult archiveBatch() {
+    return runInTransaction(dbConnection, connection ->
+      querySingleSql(
+        connection,
+        archiveBatchSql,
+        ps -> {
+          setLong(ps, 1, settings.idleFor().toSeconds());
+          setLong(ps, 2, (long) settings.batchSize());
+        },
+        rs -> new ArchiveResult(getLong(rs, "archived_streams"), getLong(rs, "archived_events"))
+      )
+    );
+  }
+
+  @Override
+  public void close() {
+    try {
+      dbConnection.close();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // last event is found through the primary key, streams without hot events are never candidates
+  private static final String archiveBatchSql = """
+    WITH candidates AS (
+        SELECT s.id
+        FROM streams s
+        CROSS JOIN LATERAL (
+            SELECT e.created
+            FROM events e
+            WHERE e.stream_id = s.id
+            ORDER BY e.stream_position DESC
+            LIMIT 1
+        ) last_event
+        WHERE s.archivable
+           OR last_event.created < now() - make_interval(secs => ?)
+        LIMIT ?
+        FOR UPDATE OF s SKIP LOCKED
+    ),
+    moved AS (
+        DELETE FROM events e
+        USING candidates c
+        WHERE e.stream_id = c.id
+        RETURNING e.stream_id, e.stream_position, e.global_position, e.id, e.data,
+                  e.metadata, e.type, e.created, e.transaction_id
+    ),
+    archived AS (
+        INSERT INTO events_archive
+            (stream_id, stream_position, global_position, id, data, metadata, type, created, transaction_id)
+        SELECT stream_id, stream_position, global_position, id, data, metadata, type, created, transaction_id
+        FROM moved
+        RETURNING 1
+    ),
+    cold AS (
+        UPDATE streams s
+            SET tier = 'cold'
+        FROM candidates c
+        WHERE s.id = c.id
+        RETURNING 1
+    )
+    SELECT
+        (SELECT count(*) FROM cold) AS archived_streams,
+        (SELECT count(*) FROM archived) AS archived_events
+    """;
+}
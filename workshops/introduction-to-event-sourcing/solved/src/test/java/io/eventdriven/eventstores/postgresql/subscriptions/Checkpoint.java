@@ -0,0 +1,10 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+/**
+ * Position in the global log. Events are ordered by the id of the transaction
+ * that appended them and then by `global_position`, as sequence values alone
+ * can be committed out of order by concurrent transactions.
+ */
+public record Checkpoint(long transactionId, long globalPosition) {
+  public static final Checkpoint START = new Checkpoint(0, 0);
+}
@@ -0,0 +1,14 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+import java.time.OffsetDateTime;
+
+public record EventEnvelope(
+  Object data,
+  String eventId,
+  String eventType,
+  String streamId,
+  long streamPosition,
+  Checkpoint position,
+  OffsetDateTime created
+) {
+}
@@ -0,0 +1,220 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+import io.eventdriven.eventstores.EventTypeMapper;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.eventdriven.eventstores.JsonEventSerializer.deserialize;
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+
+/**
+ * Catch-up subscription to all events in the store.
+ * <p>
+ * It reads events in batches ordered by (transaction_id, global_position) until it reaches the end
+ * of the log, then switches to live mode and waits for `events_appended` notification sent
+ * by `append_to_stream` (or polling interval timeout) before reading the next batch.
+ * <p>
+ * Sequence values are taken before commit, so a transaction that is still in flight can leave
+ * a gap that is filled later with lower `global_position`. To not skip such events, only events
+ * from transactions older than the oldest running transaction (`pg_snapshot_xmin`) are read.
+ * Transactions that have not written yet will get higher ids, so the ordering is stable.
+ * <p>
+ * Uses dedicated connection, as LISTEN is bound to the session. Connection is closed together
+ * with subscription. Delivery is at-least-once: checkpoint is stored after the batch is handled.
+ */
+public class EventSubscription implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(EventSubscription.class);
+  public static final String EVENTS_APPENDED_CHANNEL = "events_appended";
+
+  private final Connection dbConnection;
+  private final EventSubscriptionSettings settings;
+  private final AtomicBoolean running = new AtomicBoolean(true);
+  private final ExecutorService executor;
+  private final String readBatchSql;
+
+  public EventSubscription(Connection dbConnection, EventSubscriptionSettings settings) {
+    if (settings.handler() == null) {
+      throw new IllegalArgumentException("At least one handler must be provided");
+    }
+    this.dbConnection = dbConnection;
+    this.settings = settings;
+    this.executor = Executors.newSingleThreadExecutor();
+    this.readBatchSql = settings.streamType() != null ?
+      readBatchSqlTemplate.formatted("AND s.type = ?")
+      : readBatchSqlTemplate.formatted("");
+  }
+
+  public void start() {
+    executor.submit(this::subscribe);
+  }
+
+  private void subscribe() {
+    try {
+      executeSql(dbConnection, "LISTEN " + EVENTS_APPENDED_CHANNEL);
+
+      var checkpoint = loadCheckpoint();
+      var pollingIntervalMillis = (int) settings.pollingInterval().toMillis();
+      var failedAttempts = 0;
+
+      while (running.get()) {
+        List<EventEnvelope> batch;
+        try {
+          batch = readBatch(checkpoint);
+
+          if (!batch.isEmpty()) {
+            settings.handler().accept(batch);
+            checkpoint = batch.getLast().position();
+            storeCheckpoint(checkpoint);
+          }
+          failedAttempts = 0;
+        } catch (RuntimeException e) {
+          if (!running.get())
+            break;
+
+          // retry the same batch after a while, checkpoint was not moved
+          logger.warn(
+            "Subscription %s failed to process batch after %s, attempt %d"
+              .formatted(settings.subscriptionId(), checkpoint, ++failedAttempts),
+            e
+          );
+          Thread.sleep(pollingIntervalMillis);
+          continue;
+        }
+
+        if (batch.size() < settings.batchSize()) {
+          // caught up, wait for new events
+          waitForNotifications(pollingIntervalMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      if (running.get()) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private List<EventEnvelope> readBatch(Checkpoint checkpoint) {
+    return querySql(
+      dbConnection,
+      readBatchSql,
+      ps -> {
+        var index = 1;
+        setStringParam(ps, index++, Long.toString(checkpoint.transactionId()));
+        setLong(ps, index++, checkpoint.globalPosition());
+        if (settings.streamType() != null)
+          setStringParam(ps, index++, settings.streamType());
+        setLong(ps, index, (long) settings.batchSize());
+      },
+      EventSubscription::toEventEnvelope
+    );
+  }
+
+  static EventEnvelope toEventEnvelope(ResultSet rs) {
+    var eventTypeName = getString(rs, "type");
+    var data = deserialize(
+      EventTypeMapper.toClass(eventTypeName).get(),
+      eventTypeName,
+      getString(rs, "data")
+    ).get();
+
+    return new EventEnvelope(
+      data,
+      getString(rs, "id"),
+      eventTypeName,
+      getString(rs, "stream_id"),
+      getLong(rs, "stream_position"),
+      new Checkpoint(getLong(rs, "transaction_id"), getLong(rs, "global_position")),
+      getOffsetDateTime(rs, "created")
+    );
+  }
+
+  private void waitForNotifications(int timeoutMillis) throws SQLException {
+    // notifications are only used as a wake-up signal, payload is not needed
+    dbConnection.unwrap(PGConnection.class).getNotifications(timeoutMillis);
+  }
+
+  private Checkpoint loadCheckpoint() {
+    if (settings.subscriptionId() == null)
+      return settings.startFrom();
+
+    var checkpoints = querySql(
+      dbConnection,
+      """
+        SELECT transaction_id::text::bigint AS transaction_id, global_position
+        FROM subscription_checkpoints
+        WHERE subscription_id = ?
+        """,
+      setStringParam(settings.subscriptionId()),
+      rs -> new Checkpoint(getLong(rs, "transaction_id"), getLong(rs, "global_position"))
+    );
+
+    return checkpoints.isEmpty() ? settings.startFrom() : checkpoints.getFirst();
+  }
+
+  private void storeCheckpoint(Checkpoint checkpoint) {
+    if (settings.subscriptionId() == null)
+      return;
+
+    storeCheckpoint(dbConnection, settings.subscriptionId(), checkpoint);
+  }
+
+  static void storeCheckpoint(Connection dbConnection, String subscriptionId, Checkpoint checkpoint) {
+    executeSql(
+      dbConnection,
+      """
+        INSERT INTO subscription_checkpoints(subscription_id, transaction_id, global_position)
+        VALUES (?, ?::xid8, ?)
+        ON CONFLICT (subscription_id) DO UPDATE
+          SET transaction_id = EXCLUDED.transaction_id,
+              global_position = EXCLUDED.global_position,
+              updated = now()
+        """,
+      ps -> {
+        setStringParam(ps, 1, subscriptionId);
+        setStringParam(ps, 2, Long.toString(checkpoint.transactionId()));
+        setLong(ps, 3, checkpoint.globalPosition());
+      }
+    );
+  }
+
+
+  @Override
+  public void close() {
+    running.set(false);
+    executor.shutdownNow(); // Interrupt any blocking operations
+    try {
+      if (!executor.awaitTermination(settings.pollingInterval().toMillis() + 5000, TimeUnit.MILLISECONDS)) {
+        logger.warn("Subscription %s did not stop in time".formatted(settings.subscriptionId()));
+      }
+      dbConnection.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static final String readBatchSqlTemplate = """
+    SELECT e.transaction_id::text::bigint AS transaction_id, e.global_position,
+           e.id, e.data, e.type, e.stream_id, e.stream_position, e.created
+    FROM all_events e
+    JOIN streams s ON s.id = e.stream_id
+    WHERE (e.transaction_id, e.global_position) > (?::xid8, ?)
+      AND e.transaction_id < pg_snapshot_xmin(pg_current_snapshot())
+      %s
+    ORDER BY e.transaction_id, e.global_position
+    LIMIT ?
+    """;
+}
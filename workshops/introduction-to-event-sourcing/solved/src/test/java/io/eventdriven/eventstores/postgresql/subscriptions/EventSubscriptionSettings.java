@@ -0,0 +1,111 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+import io.eventdriven.eventstores.StreamType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class EventSubscriptionSettings {
+  private String subscriptionId;
+  private String streamType;
+  private Consumer<List<EventEnvelope>> handler;
+  private Checkpoint startFrom = Checkpoint.START;
+  private int batchSize = 100;
+  private Duration pollingInterval = Duration.ofSeconds(1);
+
+  private EventSubscriptionSettings() {
+  }
+
+  public static EventSubscriptionSettings get() {
+    return new EventSubscriptionSettings();
+  }
+
+  /**
+   * Stores checkpoint under the given id after each handled batch
+   * and resumes from it when subscription is started again.
+   */
+  public EventSubscriptionSettings withSubscriptionId(String subscriptionId) {
+    this.subscriptionId = subscriptionId;
+
+    return this;
+  }
+
+  public <T> EventSubscriptionSettings filterWithStreamType(Class<T> streamClass) {
+    return filterWithStreamType(StreamType.of(streamClass));
+  }
+
+  public EventSubscriptionSettings filterWithStreamType(String streamType) {
+    this.streamType = streamType;
+
+    return this;
+  }
+
+  /**
+   * Position to start from if there's no stored checkpoint.
+   */
+  public EventSubscriptionSettings startFrom(Checkpoint checkpoint) {
+    this.startFrom = checkpoint;
+
+    return this;
+  }
+
+  /**
+   * Maximum number of events read in a single query and passed to the handler.
+   */
+  public EventSubscriptionSettings withBatchSize(int batchSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be positive");
+
+    this.batchSize = batchSize;
+
+    return this;
+  }
+
+  /**
+   * Maximum time to wait for notification in live mode before checking for new events anyway.
+   */
+  public EventSubscriptionSettings withPollingInterval(Duration pollingInterval) {
+    this.pollingInterval = pollingInterval;
+
+    return this;
+  }
+
+  public EventSubscriptionSettings handleBatch(Consumer<List<EventEnvelope>> handler) {
+    this.handler = handler;
+
+    return this;
+  }
+
+  public EventSubscriptionSettings handleSingle(Consumer<EventEnvelope> handler) {
+    this.handler = (events) -> {
+      events.forEach(handler);
+    };
+
+    return this;
+  }
+
+  public String subscriptionId() {
+    return subscriptionId;
+  }
+
+  public String streamType() {
+    return streamType;
+  }
+
+  public Consumer<List<EventEnvelope>> handler() {
+    return handler;
+  }
+
+  public Checkpoint startFrom() {
+    return startFrom;
+  }
+
+  public int batchSize() {
+    return batchSize;
+  }
+
+  public Duration pollingInterval() {
+    return pollingInterval;
+  }
+}
@@ -0,0 +1,134 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+import io.eventdriven.eventstores.StreamType;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public class ProjectionRebuildSettings {
+  private String rebuildId;
+  private String subscriptionId;
+  private String streamType;
+  private Consumer<List<EventEnvelope>> handler;
+  private Consumer<Checkpoint> merge = _ -> {
+  };
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private int batchSize = 1000;
+
+  private ProjectionRebuildSettings() {
+  }
+
+  public static ProjectionRebuildSettings get() {
+    return new ProjectionRebuildSettings();
+  }
+
+  /**
+   * Stores checkpoint of each partition under the given id, so interrupted rebuild
+   * can be resumed by starting it again with the same id.
+   */
+  public ProjectionRebuildSettings withRebuildId(String rebuildId) {
+    this.rebuildId = rebuildId;
+
+    return this;
+  }
+
+  /**
+   * Subscription that should continue from where the rebuild ended.
+   * Its checkpoint is set to the rebuild end position after the merge step.
+   */
+  public ProjectionRebuildSettings continueWithSubscription(String subscriptionId) {
+    this.subscriptionId = subscriptionId;
+
+    return this;
+  }
+
+  public <T> ProjectionRebuildSettings filterWithStreamType(Class<T> streamClass) {
+    return filterWithStreamType(StreamType.of(streamClass));
+  }
+
+  public ProjectionRebuildSettings filterWithStreamType(String streamType) {
+    this.streamType = streamType;
+
+    return this;
+  }
+
+  /**
+   * Number of partitions replayed at once, each uses its own connection.
+   */
+  public ProjectionRebuildSettings withParallelism(int parallelism) {
+    if (parallelism < 1)
+      throw new IllegalArgumentException("Parallelism must be positive");
+
+    this.parallelism = parallelism;
+
+    return this;
+  }
+
+  /**
+   * Maximum number of events read in a single query and passed to the handler.
+   */
+  public ProjectionRebuildSettings withBatchSize(int batchSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be positive");
+
+    this.batchSize = batchSize;
+
+    return this;
+  }
+
+  /**
+   * Handler is called concurrently for different partitions,
+   * but batches of the same stream are always passed in order from the same partition.
+   */
+  public ProjectionRebuildSettings handleBatch(Consumer<List<EventEnvelope>> handler) {
+    this.handler = handler;
+
+    return this;
+  }
+
+  public ProjectionRebuildSettings handleSingle(Consumer<EventEnvelope> handler) {
+    this.handler = (events) -> {
+      events.forEach(handler);
+    };
+
+    return this;
+  }
+
+  /**
+   * Called once all partitions are replayed, with the position the rebuild ended at,
+   * e.g. to switch the read model to the rebuilt tables.
+   */
+  public ProjectionRebuildSettings mergeWith(Consumer<Checkpoint> merge) {
+    this.merge = merge;
+
+    return this;
+  }
+
+  public String rebuildId() {
+    return rebuildId;
+  }
+
+  public String subscriptionId() {
+    return subscriptionId;
+  }
+
+  public String streamType() {
+    return streamType;
+  }
+
+  public Consumer<List<EventEnvelope>> handler() {
+    return handler;
+  }
+
+  public Consumer<Checkpoint> merge() {
+    return merge;
+  }
+
+  public int parallelism() {
+    return parallelism;
+  }
+
+  public int batchSize() {
+    return batchSize;
+  }
+}
@@ -0,0 +1,288 @@
+package io.eventdriven.eventstores.postgresql.subscriptions;
+
+import io.eventdriven.eventstores.postgresql.PostgreSQLEventStore;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static io.eventdriven.eventstores.postgresql.tools.SqlInvoker.*;
+
+/**
+ * Replays all events to rebuild a read model from scratch, in parallel.
+ * <p>
+ * Each partition replays events with the same stored `partition_key` (hash of stream id), so all events
+ * of a stream are replayed by the same partition, in the same order as by subscription (transaction id,
+ * global position). Partitions are replayed on a fork-join pool, each with its own connection, and store
+ * their checkpoints after each batch, so the rebuild can be resumed after a crash.
+ * <p>
+ * Rebuild ends at the position of the last event visible when it was started. When all partitions
+ * reach it, the merge step is called and, optionally, subscription checkpoint is moved there,
+ * so a regular subscription continues with events appended in the meantime.
+ * <p>
+ * Partition reads only its own events with a range scan of the (partition_key, transaction_id, global_position)
+ * index, so together partitions read the log once.
+ */
+public class ProjectionRebuilder {
+  private final Supplier<Connection> connectionFactory;
+  private final ProjectionRebuildSettings settings;
+  private final int partitions = PostgreSQLEventStore.partitionKeys;
+  private final String readBatchSql;
+
+  public record RebuildResult(long replayedEvents, Checkpoint position, Duration elapsed) {
+    public double eventsPerSecond() {
+      var seconds = elapsed.toNanos() / 1_000_000_000.0;
+      return seconds == 0 ? 0 : replayedEvents / seconds;
+    }
+  }
+
+  public ProjectionRebuilder(Supplier<Connection> connectionFactory, ProjectionRebuildSettings settings) {
+    if (settings.rebuildId() == null) {
+      throw new IllegalArgumentException("Rebuild id must be provided");
+    }
+    if (settings.handler() == null) {
+      throw new IllegalArgumentException("At least one handler must be provided");
+    }
+    this.connectionFactory = connectionFactory;
+    this.settings = settings;
+    this.readBatchSql = settings.streamType() != null ?
+      readBatchSqlTemplate.formatted("JOIN streams s ON s.id = e.stream_id", "AND s.type = ?")
+      : readBatchSqlTemplate.formatted("", "");
+  }
+
+  public RebuildResult rebuild() {
+    var start = System.nanoTime();
+
+    try (var connection = connectionFactory.get()) {
+      executeSql(connection, createRebuildCheckpointsTableSql);
+
+      var upperBound = startOrResume(connection);
+
+      var replays = IntStream.range(0, partitions)
+        .<Callable<Long>>mapToObj(partition -> () -> replayPartition(partition, upperBound))
+        .toList();
+
+      var replayedEvents = 0L;
+      var pool = new ForkJoinPool(settings.parallelism());
+      try {
+        for (var partition : pool.invokeAll(replays)) {
+          replayedEvents += partition.get();
+        }
+      } finally {
+        pool.shutdown();
+      }
+
+      settings.merge().accept(upperBound);
+
+      if (settings.subscriptionId() != null)
+        EventSubscription.storeCheckpoint(connection, settings.subscriptionId(), upperBound);
+
+      return new RebuildResult(replayedEvents, upperBound, Duration.ofNanos(System.nanoTime() - start));
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Rebuild failed, it can be resumed with the same rebuild id", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Registers partitions with the end position of the rebuild or, if the rebuild was already started,
+   * returns its end position, so resumed partitions finish at the same place.
+   */
+  private Checkpoint startOrResume(Connection connection) {
+    return runInTransaction(connection, tx -> {
+      var existing = querySql(
+        tx,
+        """
+          SELECT partitions,
+                 upper_transaction_id::text::bigint AS upper_transaction_id,
+                 upper_global_position
+          FROM projection_rebuild_checkpoints
+          WHERE rebuild_id = ?
+          LIMIT 1
+          """,
+        setStringParam(settings.rebuildId()),
+        rs -> new StartedRebuild(
+          getLong(rs, "partitions"),
+          new Checkpoint(getLong(rs, "upper_transaction_id"), getLong(rs, "upper_global_position"))
+        )
+      );
+
+      if (!existing.isEmpty()) {
+        var started = existing.getFirst();
+
+        if (started.partitions() != partitions)
+          throw new IllegalStateException(
+            "Rebuild '%s' was started with %d partitions".formatted(settings.rebuildId(), started.partitions())
+          );
+
+        return started.upperBound();
+      }
+
+      var upperBound = querySql(
+        tx,
+        """
+          SELECT transaction_id::text::bigint AS transaction_id, global_position
+          FROM all_events
+          WHERE transaction_id < pg_snapshot_xmin(pg_current_snapshot())
+          ORDER BY transaction_id DESC, global_position DESC
+          LIMIT 1
+          """,
+        rs -> new Checkpoint(getLong(rs, "transaction_id"), getLong(rs, "global_position"))
+      ).stream().findFirst().orElse(Checkpoint.START);
+
+      for (var partition = 0; partition < partitions; partition++) {
+        var partitionNumber = partition;
+        executeSql(
+          tx,
+          """
+            INSERT INTO projection_rebuild_checkpoints
+                (rebuild_id, partition, partitions, transaction_id, global_position,
+                 upper_transaction_id, upper_global_position)
+            VALUES (?, ?, ?, '0'::xid8, 0, ?::xid8, ?)
+            """,
+          ps -> {
+            setStringParam(ps, 1, settings.rebuildId());
+            setLong(ps, 2, (long) partitionNumber);
+            setLong(ps, 3, (long) partitions);
+            setStringParam(ps, 4, Long.toString(upperBound.transactionId()));
+            setLong(ps, 5, upperBound.globalPosition());
+          }
+        );
+      }
+
+      return upperBound;
+    });
+  }
+
+  private long replayPartition(int partition, Checkpoint upperBound) throws SQLException {
+    try (var connection = connectionFactory.get()) {
+      var checkpoint = loadPartitionCheckpoint(connection, partition);
+      var replayedEvents = 0L;
+
+      while (checkpoint != null) {
+        var batch = readBatch(connection, partition, checkpoint, upperBound);
+
+        if (!batch.isEmpty()) {
+          settings.handler().accept(batch);
+          checkpoint = batch.getLast().position();
+          replayedEvents += batch.size();
+        }
+
+        var completed = batch.size() < settings.batchSize();
+        storePartitionCheckpoint(connection, partition, checkpoint, completed);
+
+        if (completed)
+          break;
+      }
+
+      return replayedEvents;
+    }
+  }
+
+  private List<EventEnvelope> readBatch(
+    Connection connection,
+    int partition,
+    Checkpoint checkpoint,
+    Checkpoint upperBound
+  ) {
+    return querySql(
+      connection,
+      readBatchSql,
+      ps -> {
+        var index = 1;
+        setLong(ps, index++, (long) partition);
+        setStringParam(ps, index++, Long.toString(checkpoint.transactionId()));
+        setLong(ps, index++, checkpoint.globalPosition());
+        setStringParam(ps, index++, Long.toString(upperBound.transactionId()));
+        setLong(ps, index++, upperBound.globalPosition());
+        if (settings.streamType() != null)
+          setStringParam(ps, index++, settings.streamType());
+        setLong(ps, index, (long) settings.batchSize());
+      },
+      EventSubscription::toEventEnvelope
+    );
+  }
+
+  // returns null for already completed partition
+  private Checkpoint loadPartitionCheckpoint(Connection connection, int partition) {
+    var checkpoints = querySql(
+      connection,
+      """
+        SELECT transaction_id::text::bigint AS transaction_id, global_position, completed
+        FROM projection_rebuild_checkpoints
+        WHERE rebuild_id = ? AND partition = ?
+        """,
+      ps -> {
+        setStringParam(ps, 1, settings.rebuildId());
+        setLong(ps, 2, (long) partition);
+      },
+      rs -> getBoolean(rs, "completed") ?
+        null
+        : new Checkpoint(getLong(rs, "transaction_id"), getLong(rs, "global_position"))
+    );
+
+    return checkpoints.getFirst();
+  }
+
+  private void storePartitionCheckpoint(Connection connection, int partition, Checkpoint checkpoint, boolean completed) {
+    executeSql(
+      connection,
+      """
+        UPDATE projection_rebuild_checkpoints
+          SET transaction_id = ?::xid8,
+              global_position = ?,
+              completed = ?,
+              updated = now()
+        WHERE rebuild_id = ? AND partition = ?
+        """,
+      ps -> {
+        setStringParam(ps, 1, Long.toString(checkpoint.transactionId()));
+        setLong(ps, 2, checkpoint.globalPosition());
+        setBoolean(ps, 3, completed);
+        setStringParam(ps, 4, settings.rebuildId());
+        setLong(ps, 5, (long) partition);
+      }
+    );
+  }
+
+  private record StartedRebuild(long partitions, Checkpoint upperBound) {
+  }
+
+  private static final String createRebuildCheckpointsTableSql = """
+    CREATE TABLE IF NOT EXISTS projection_rebuild_checkpoints(
+        rebuild_id             TEXT                      NOT NULL,
+        partition              INT                       NOT NULL,
+        partitions             INT                       NOT NULL,
+        transaction_id         XID8                      NOT NULL,
+        global_position        BIGINT                    NOT NULL,
+        upper_transaction_id   XID8                      NOT NULL,
+        upper_global_position  BIGINT                    NOT NULL,
+        completed              BOOLEAN                   NOT NULL    default (false),
+        updated                timestamp with time zone  NOT NULL    default (now()),
+        PRIMARY KEY (rebuild_id, partition)
+    );
+    """;
+
+  private static final String readBatchSqlTemplate = """
+    SELECT e.transaction_id::text::bigint AS transaction_id, e.global_position,
+           e.id, e.data, e.type, e.stream_id, e.stream_position, e.created
+    FROM all_events e
+    %s
+    WHERE e.partition_key = ?
+      AND (e.transaction_id, e.global_position) > (?::xid8, ?)
+      AND (e.transaction_id, e.global_position) <= (?::xid8, ?)
+      %s
+    ORDER BY e.transaction_id, e.global_position
+    LIMIT ?
+    """;
+}
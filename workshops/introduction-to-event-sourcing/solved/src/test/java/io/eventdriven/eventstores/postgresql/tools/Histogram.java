@@ -0,0 +1,54 @@
+package io.eventdriven.eventstores.postgresql.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with power-of-two buckets, good enough to see the shape
+ * of flush sizes and latencies without pulling in a metrics library.
+ * Percentiles are approximated by the upper bound of the bucket.
+ */
+public final class Histogram {
+  private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+
+  public void record(long value) {
+    var bucket = value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    buckets.incrementAndGet(Math.min(bucket, Long.SIZE - 1));
+    count.increment();
+    sum.add(value);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public double mean() {
+    var count = count();
+    return count == 0 ? 0 : (double) sum.sum() / count;
+  }
+
+  public long percentile(double percentile) {
+    var total = count();
+    if (total == 0)
+      return 0;
+
+    var threshold = (long) Math.ceil(total * percentile / 100.0);
+    var seen = 0L;
+
+    for (var bucket = 0; bucket < Long.SIZE; bucket++) {
+      seen += buckets.get(bucket);
+      if (seen >= threshold)
+        return bucket == 0 ? 0 : (1L << bucket) - 1;
+    }
+
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram[count=%d, mean=%.1f, p50<=%d, p99<=%d, max<=%d]"
+      .formatted(count(), mean(), percentile(50), percentile(99), percentile(100));
+  }
+}
@@ -2,6 +2,7 @@ package io.eventdriven.eventstores.postgresql.tools;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -15,6 +16,19 @@ public final class SqlInvoker {
     }
   }
 
+  public static int executeSql(
+    Connection dbConnection,
+    String sql,
+    Consumer<PreparedStatement> setParams
+  ) {
+    try (var st = dbConnection.prepareStatement(sql)) {
+      setParams.accept(st);
+      return st.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static <Result> ArrayList<Result> querySql(
     Connection dbConnection,
     String sql,
@@ -50,16 +64,19 @@ public final class SqlInvoker {
   ) {
     try {
       dbConnection.setAutoCommit(false);
-      var result = callback.apply(dbConnection);
-      dbConnection.commit();
-
-      return result;
-    } catch (SQLException e) {
       try {
+        var result = callback.apply(dbConnection);
+        dbConnection.commit();
+
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        // also on business failures, so locks taken in the transaction are released
         dbConnection.rollback();
-      } catch (SQLException ex) {
-        throw new RuntimeException(ex);
+        throw e;
+      } finally {
+        dbConnection.setAutoCommit(true);
       }
+    } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
@@ -115,6 +132,14 @@ public final class SqlInvoker {
     }
   }
 
+  public static void setBoolean(PreparedStatement ps, int index, boolean value) {
+    try {
+      ps.setBoolean(index, value);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static void setLocalDateTime(PreparedStatement ps, int index, LocalDateTime value) {
     try {
       if (value == null) {
@@ -152,4 +177,20 @@ public final class SqlInvoker {
       throw new RuntimeException(e);
     }
   }
+
+  public static long getLong(ResultSet resultSet, String columnName) {
+    try {
+      return resultSet.getLong(columnName);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static OffsetDateTime getOffsetDateTime(ResultSet resultSet, String columnName) {
+    try {
+      return resultSet.getObject(columnName, OffsetDateTime.class);
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
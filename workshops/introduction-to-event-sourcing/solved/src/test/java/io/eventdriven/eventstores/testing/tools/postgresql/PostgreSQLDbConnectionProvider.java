@@ -14,18 +14,26 @@ public final class PostgreSQLDbConnectionProvider {
       .replace(".", "_");
 
     // each test will have its own schema name to run have data isolation and not interfere other tests
-    Connection connection = null;
+    var connection = getDbConnection(testClassName);
+    try (var statement = connection.createStatement()) {
+      statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(testClassName));
+
+      return connection;
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Opens additional connection to the existing schema, e.g. for subscriptions
+   */
+  public static Connection getDbConnection(String schemaName) {
     try {
-      connection = DriverManager.getConnection(
-        Settings.connectionString + "?currentSchema=%s".formatted(testClassName),
+      return DriverManager.getConnection(
+        Settings.connectionString + "?currentSchema=%s".formatted(schemaName),
         Settings.userName,
         Settings.password
       );
-      try (var statement = connection.createStatement()) {
-        statement.execute("DROP SCHEMA IF EXISTS %1$s CASCADE; CREATE SCHEMA %1$s".formatted(testClassName));
-      }
-
-      return connection;
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
@@ -3,24 +3,38 @@ package io.eventdriven.introductiontoeventsourcing.e07_application_logic.esdb.co
 import com.eventstore.dbclient.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.eventdriven.eventstores.AsyncEventStore;
 import io.eventdriven.eventstores.EventStore;
 import io.eventdriven.eventstores.StreamName;
+import io.eventdriven.eventstores.metrics.EventStoreMetrics;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 public class EsdbEventStore implements EventStore {
   private final EventStoreDBClient eventStore;
   private final ObjectMapper mapper;
+  private final EventStoreMetrics metrics;
 
   public EsdbEventStore(
     EventStoreDBClient eventStore,
     ObjectMapper mapper
+  ) {
+    this(eventStore, mapper, EventStoreMetrics.NOOP);
+  }
+
+  public EsdbEventStore(
+    EventStoreDBClient eventStore,
+    ObjectMapper mapper,
+    EventStoreMetrics metrics
   ) {
     this.eventStore = eventStore;
     this.mapper = mapper;
+    this.metrics = metrics;
   }
 
   @Override
@@ -31,19 +45,21 @@ public class EsdbEventStore implements EventStore {
   @Override
   public ReadStreamResult readStream(StreamName streamName) {
     try {
-      var readResult = eventStore.readStream(streamName.toString(), ReadStreamOptions.get()).get();
-
-      var events = readResult.getEvents().stream()
-        .map(this::deserialize)
-        .toList();
-
-      return new ReadStreamResult(readResult.getLastStreamPosition(), events);
-    } catch (Throwable e) {
-      Throwable innerException = e.getCause();
+      return async.readStream(streamName).get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
 
-      if (innerException instanceof StreamNotFoundException) {
-        return new ReadStreamResult(0, List.of());
-      }
+  /**
+   * Stream positions of this store are ESDB revisions, so the last known event is the one
+   * at `afterStreamPosition`, and reading starts from the next revision.
+   */
+  @Override
+  public ReadStreamResult readStreamAfter(StreamName streamName, long afterStreamPosition) {
+    try {
+      return read(streamName, ReadStreamOptions.get().fromRevision(afterStreamPosition + 1)).get();
+    } catch (InterruptedException | ExecutionException e) {
       throw new RuntimeException(e);
     }
   }
@@ -51,39 +67,111 @@ public class EsdbEventStore implements EventStore {
   @Override
   public AppendResult appendToStream(StreamName streamName, Long expectedStreamPosition, List<Object> events) {
     try {
+      return async.appendToStream(streamName, expectedStreamPosition, events).get();
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Non-blocking view of this store, composing client's futures without waiting on them.
+   */
+  public AsyncEventStore async() {
+    return async;
+  }
+
+  private final AsyncEventStore async = new AsyncEventStore() {
+    @Override
+    public CompletableFuture<ReadStreamResult> readStream(StreamName streamName) {
+      return read(streamName, ReadStreamOptions.get());
+    }
+
+    @Override
+    public CompletableFuture<AppendResult> appendToStream(
+      StreamName streamName,
+      Long expectedStreamPosition,
+      List<Object> events
+    ) {
       var expectedRevision = expectedStreamPosition != null ?
         ExpectedRevision.expectedRevision(expectedStreamPosition)
         : ExpectedRevision.noStream();
 
-      var result = eventStore.appendToStream(
+      var start = System.nanoTime();
+      var eventData = events.stream()
+        .map(event -> serialize(streamName, event))
+        .toList();
+
+      var bytes = 0L;
+      for (var data : eventData) {
+        bytes += data.getEventData().length;
+      }
+      var serializedBytes = bytes;
+
+      return eventStore.appendToStream(
         streamName.toString(),
         AppendToStreamOptions.get().expectedRevision(expectedRevision),
-        events.stream().map(this::serialize).iterator()
-      ).get();
-
-      return new AppendResult(result.getNextExpectedRevision().toRawLong());
-    } catch (InterruptedException | ExecutionException e) {
-      throw new RuntimeException(e);
+        eventData.iterator()
+      ).whenComplete((_, e) -> {
+        if (e == null)
+          metrics.recordAppend(streamName.streamType(), events.size(), serializedBytes, System.nanoTime() - start);
+        else if ((e instanceof CompletionException ? e.getCause() : e) instanceof WrongExpectedVersionException)
+          metrics.recordAppendConflict(streamName.streamType());
+      }).thenApply(result -> new AppendResult(result.getNextExpectedRevision().toRawLong()));
     }
+  };
+
+  private CompletableFuture<ReadStreamResult> read(StreamName streamName, ReadStreamOptions options) {
+    var start = System.nanoTime();
+
+    return eventStore.readStream(streamName.toString(), options)
+      .thenApply(readResult -> {
+        var events = readResult.getEvents().stream()
+          .map(resolvedEvent -> deserialize(streamName, resolvedEvent))
+          .toList();
+
+        metrics.recordRead(streamName.streamType(), events.size(), System.nanoTime() - start);
+
+        return new ReadStreamResult(readResult.getLastStreamPosition(), events);
+      })
+      .exceptionally(e -> {
+        var innerException = e instanceof CompletionException ? e.getCause() : e;
+
+        if (innerException instanceof StreamNotFoundException) {
+          return new ReadStreamResult(0, List.of());
+        }
+        throw e instanceof CompletionException completionException ?
+          completionException
+          : new CompletionException(e);
+      });
   }
 
-  private EventData serialize(Object event) {
+  private EventData serialize(StreamName streamName, Object event) {
     try {
+      var start = System.nanoTime();
+      var data = mapper.writeValueAsBytes(event);
+      metrics.recordSerialization(streamName.streamType(), data.length, System.nanoTime() - start);
+
       return EventDataBuilder.json(
         UUID.randomUUID(),
         event.getClass().getTypeName(),
-        mapper.writeValueAsBytes(event)
+        data
       ).build();
     } catch (JsonProcessingException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private Object deserialize(ResolvedEvent resolvedEvent) {
+  private Object deserialize(StreamName streamName, ResolvedEvent resolvedEvent) {
     try {
       var eventClass = Class.forName(
         resolvedEvent.getOriginalEvent().getEventType());
-      return mapper.readValue(resolvedEvent.getEvent().getEventData(), eventClass);
+      var data = resolvedEvent.getEvent().getEventData();
+
+      var start = System.nanoTime();
+      var event = mapper.readValue(data, eventClass);
+      metrics.recordDeserialization(streamName.streamType(), data.length, System.nanoTime() - start);
+
+      return event;
     } catch (IOException | ClassNotFoundException e) {
       throw new RuntimeException(e);
     }